@@ -4,4 +4,23 @@ public interface Activation
 {
   double activate(double input);
   double calculateDerivative(double input);
+
+  /**
+   *
+   * @return True if, after each neuron on a layer has been activated, the outputs must also be normalized across the
+   *         whole layer with normalizeLayer (as softmax does).
+   */
+  default boolean isLayerNormalizing()
+  {
+    return false;
+  }
+
+  /**
+   * Normalize the activated outputs of a whole layer in place. Only called when isLayerNormalizing returns true.
+   *
+   * @param outputs The output of each neuron on the layer.
+   */
+  default void normalizeLayer(double[] outputs)
+  {
+  }
 }
@@ -0,0 +1,52 @@
+package ponder.activation;
+
+/**
+ * Softmax turns a layer's outputs into a probability distribution. Each neuron passes its weighted sum through
+ * unchanged, and the layer then exponentiates and normalizes all of them together.
+ *
+ * The derivative is only the diagonal term a * (1 - a). That is exact when paired with SoftmaxCrossEntropyLoss, which
+ * bypasses it with a fused gradient, and an approximation with any other loss.
+ */
+public class SoftmaxActivation implements Activation
+{
+  @Override
+  public double activate(double input)
+  {
+    return input;
+  }
+
+  @Override
+  public double calculateDerivative(double input)
+  {
+    return input * (1 - input);
+  }
+
+  @Override
+  public boolean isLayerNormalizing()
+  {
+    return true;
+  }
+
+  @Override
+  public void normalizeLayer(double[] outputs)
+  {
+    // Subtract the largest value before exponentiating so that large inputs can't overflow.
+    double max = Double.NEGATIVE_INFINITY;
+    for (double output : outputs)
+    {
+      max = Math.max(max, output);
+    }
+
+    double sum = 0d;
+    for (int i = 0; i < outputs.length; i++)
+    {
+      outputs[i] = Math.exp(outputs[i] - max);
+      sum += outputs[i];
+    }
+
+    for (int i = 0; i < outputs.length; i++)
+    {
+      outputs[i] /= sum;
+    }
+  }
+}
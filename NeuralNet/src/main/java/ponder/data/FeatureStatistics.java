@@ -0,0 +1,356 @@
+package ponder.data;
+
+import ponder.err.PonderInvalidInputException;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Per-feature count, mean, variance, minimum and maximum, computed in a single pass over the data.
+ *
+ * Rows are split across threads; each thread keeps running statistics with Welford's method, and the partial results
+ * are merged pairwise with Chan's formula. The data is therefore read exactly once, and the result does not depend on
+ * how the rows were split beyond floating point rounding.
+ *
+ * The statistics can be used to standardize data in place, or folded into the first layer of a network (see
+ * NeuralNetwork.foldStandardization) so that the network accepts raw inputs at no extra cost per run.
+ */
+public class FeatureStatistics
+{
+  /**
+   * Running statistics for a subset of the rows.
+   */
+  private static final class Accumulator
+  {
+    private long count = 0L;
+    private final double[] mean;
+    private final double[] sumOfSquares;
+    private final double[] min;
+    private final double[] max;
+
+    private Accumulator(int numFeatures)
+    {
+      mean = new double[numFeatures];
+      sumOfSquares = new double[numFeatures];
+      min = new double[numFeatures];
+      max = new double[numFeatures];
+      Arrays.fill(min, Double.POSITIVE_INFINITY);
+      Arrays.fill(max, Double.NEGATIVE_INFINITY);
+    }
+
+    private void add(double[] row)
+    {
+      count++;
+      for (int i = 0; i < mean.length; i++)
+      {
+        double value = row[i];
+        double delta = value - mean[i];
+        mean[i] += delta / count;
+        sumOfSquares[i] += delta * (value - mean[i]);
+        if(value < min[i])
+        {
+          min[i] = value;
+        }
+        if(value > max[i])
+        {
+          max[i] = value;
+        }
+      }
+    }
+
+    private void merge(Accumulator other)
+    {
+      if(other.count == 0L)
+      {
+        return;
+      }
+
+      long combinedCount = count + other.count;
+      for (int i = 0; i < mean.length; i++)
+      {
+        double delta = other.mean[i] - mean[i];
+        mean[i] += delta * other.count / combinedCount;
+        sumOfSquares[i] += other.sumOfSquares[i] + delta * delta * count * other.count / combinedCount;
+        min[i] = Math.min(min[i], other.min[i]);
+        max[i] = Math.max(max[i], other.max[i]);
+      }
+      count = combinedCount;
+    }
+  }
+
+  private final String[] featureNames;
+  private final long count;
+  private final double[] mean;
+  private final double[] variance;
+  private final double[] min;
+  private final double[] max;
+
+  private FeatureStatistics(String[] featureNames, long count, double[] mean, double[] variance, double[] min,
+                            double[] max)
+  {
+    this.featureNames = featureNames;
+    this.count = count;
+    this.mean = mean;
+    this.variance = variance;
+    this.min = min;
+    this.max = max;
+  }
+
+  private static FeatureStatistics fromAccumulator(String[] featureNames, Accumulator accumulator)
+  {
+    double[] variance = new double[featureNames.length];
+    for (int i = 0; i < variance.length; i++)
+    {
+      variance[i] = accumulator.count == 0L ? 0d : accumulator.sumOfSquares[i] / accumulator.count;
+    }
+    return new FeatureStatistics(featureNames, accumulator.count, accumulator.mean, variance, accumulator.min,
+        accumulator.max);
+  }
+
+  /**
+   * Compute statistics for the requested features of an input set.
+   *
+   * @param inputSet The data to summarize.
+   * @param inputFeatureNames The features to summarize, in network order.
+   * @return The statistics, with one entry per requested feature.
+   * @throws PonderInvalidInputException Indicates that a requested feature does not exist.
+   */
+  public static FeatureStatistics compute(InputSet inputSet, String[] inputFeatureNames)
+      throws PonderInvalidInputException
+  {
+    return compute(inputFeatureNames, inputSet.getInputFeatures(inputFeatureNames));
+  }
+
+  /**
+   * Compute statistics for each column of a set of rows.
+   *
+   * @param featureNames The name of each column.
+   * @param rows The data to summarize. Each row must have one value per feature name.
+   * @return The statistics.
+   * @throws PonderInvalidInputException Indicates that the rows are not a consistent shape.
+   */
+  public static FeatureStatistics compute(String[] featureNames, double[][] rows) throws PonderInvalidInputException
+  {
+    final int numFeatures = featureNames.length;
+    for (double[] row : rows)
+    {
+      if(row.length != numFeatures)
+      {
+        throw new PonderInvalidInputException("Training data is not a consistent shape!");
+      }
+    }
+
+    Accumulator accumulator = IntStream.range(0, rows.length).parallel().collect(
+        () -> new Accumulator(numFeatures),
+        (partial, rowIndex) -> partial.add(rows[rowIndex]),
+        Accumulator::merge);
+
+    return fromAccumulator(featureNames, accumulator);
+  }
+
+  /**
+   * Compute statistics for each column of an off-heap matrix. The matrix is read in place.
+   *
+   * @param featureNames The name of each column.
+   * @param rows The data to summarize.
+   * @return The statistics.
+   * @throws PonderInvalidInputException Indicates that the matrix is not a consistent shape.
+   */
+  public static FeatureStatistics compute(String[] featureNames, OffHeapMatrix rows) throws PonderInvalidInputException
+  {
+    final int numFeatures = featureNames.length;
+    if(rows.getColumnCount() != numFeatures)
+    {
+      throw new PonderInvalidInputException("Training data is not a consistent shape!");
+    }
+
+    // Each partial result owns a row buffer, so the parallel reads never share a heap array.
+    final class BufferedAccumulator
+    {
+      private final Accumulator accumulator = new Accumulator(numFeatures);
+      private final double[] rowBuffer = new double[numFeatures];
+    }
+
+    BufferedAccumulator result = IntStream.range(0, rows.getRowCount()).parallel().collect(
+        BufferedAccumulator::new,
+        (partial, rowIndex) ->
+        {
+          rows.copyRow(rowIndex, partial.rowBuffer);
+          partial.accumulator.add(partial.rowBuffer);
+        },
+        (left, right) -> left.accumulator.merge(right.accumulator));
+
+    return fromAccumulator(featureNames, result.accumulator);
+  }
+
+  /**
+   * Load statistics written by save.
+   *
+   * @param sourceFile The file to read.
+   * @return The statistics.
+   * @throws PonderInvalidInputException Indicates an unreadable or malformed file.
+   */
+  public static FeatureStatistics load(String sourceFile) throws PonderInvalidInputException
+  {
+    List<String> names = new ArrayList<>();
+    List<double[]> values = new ArrayList<>();
+    long count = 0L;
+
+    try (BufferedReader br = new BufferedReader(new FileReader(sourceFile)))
+    {
+      // Skip the header.
+      String line = br.readLine();
+      while ((line = br.readLine()) != null)
+      {
+        String[] fields = line.split(",");
+        if(fields.length != 6)
+        {
+          throw new PonderInvalidInputException("Feature statistics row does not have 6 fields!");
+        }
+        names.add(fields[0]);
+        count = Long.parseLong(fields[1]);
+        values.add(new double[]{Double.parseDouble(fields[2]), Double.parseDouble(fields[3]),
+            Double.parseDouble(fields[4]), Double.parseDouble(fields[5])});
+      }
+    }
+    catch (IOException e)
+    {
+      throw new PonderInvalidInputException("Unable to read feature statistics file!");
+    }
+    catch(NumberFormatException nfe)
+    {
+      throw new PonderInvalidInputException("Feature statistic cannot be interpreted as a number!");
+    }
+
+    int numFeatures = names.size();
+    double[] mean = new double[numFeatures];
+    double[] variance = new double[numFeatures];
+    double[] min = new double[numFeatures];
+    double[] max = new double[numFeatures];
+    for (int i = 0; i < numFeatures; i++)
+    {
+      mean[i] = values.get(i)[0];
+      variance[i] = values.get(i)[1];
+      min[i] = values.get(i)[2];
+      max[i] = values.get(i)[3];
+    }
+
+    return new FeatureStatistics(names.toArray(new String[0]), count, mean, variance, min, max);
+  }
+
+  /**
+   * Write these statistics as a CSV file with one row per feature, so that they can be kept alongside a trained model
+   * and reapplied to new data.
+   *
+   * @param targetFile The file to write.
+   * @throws PonderInvalidInputException Indicates that the file could not be written.
+   */
+  public void save(String targetFile) throws PonderInvalidInputException
+  {
+    try (PrintWriter writer = new PrintWriter(new FileWriter(targetFile)))
+    {
+      writer.println("Feature,Count,Mean,Variance,Min,Max");
+      for (int i = 0; i < featureNames.length; i++)
+      {
+        // Double.toString round-trips exactly, so a reloaded model standardizes identically.
+        writer.println(featureNames[i] + "," + count + "," + mean[i] + "," + variance[i] + "," + min[i] + "," + max[i]);
+      }
+    }
+    catch (IOException e)
+    {
+      throw new PonderInvalidInputException("Unable to write feature statistics file!");
+    }
+  }
+
+  /**
+   * Standardize rows in place to zero mean and unit variance. Features with zero variance are only centred.
+   *
+   * @param rows The rows to standardize, with one value per feature in the same order as these statistics.
+   * @throws PonderInvalidInputException Indicates that the rows are not a consistent shape.
+   */
+  public void standardizeInPlace(double[][] rows) throws PonderInvalidInputException
+  {
+    double[] scale = new double[mean.length];
+    for (int i = 0; i < scale.length; i++)
+    {
+      scale[i] = 1.0d / getScale(i);
+    }
+
+    for (double[] row : rows)
+    {
+      if(row.length != mean.length)
+      {
+        throw new PonderInvalidInputException("Training data is not a consistent shape!");
+      }
+      for (int i = 0; i < row.length; i++)
+      {
+        row[i] = (row[i] - mean[i]) * scale[i];
+      }
+    }
+  }
+
+  public String[] getFeatureNames()
+  {
+    return featureNames;
+  }
+
+  public int getFeatureCount()
+  {
+    return featureNames.length;
+  }
+
+  /**
+   *
+   * @return The number of rows these statistics were computed from.
+   */
+  public long getCount()
+  {
+    return count;
+  }
+
+  public double getMean(int featureIndex)
+  {
+    return mean[featureIndex];
+  }
+
+  /**
+   *
+   * @return The population variance of the feature.
+   */
+  public double getVariance(int featureIndex)
+  {
+    return variance[featureIndex];
+  }
+
+  public double getStandardDeviation(int featureIndex)
+  {
+    return Math.sqrt(variance[featureIndex]);
+  }
+
+  public double getMin(int featureIndex)
+  {
+    return min[featureIndex];
+  }
+
+  public double getMax(int featureIndex)
+  {
+    return max[featureIndex];
+  }
+
+  /**
+   *
+   * @return The divisor used when standardizing the feature: its standard deviation, or 1 if that is zero.
+   */
+  public double getScale(int featureIndex)
+  {
+    double standardDeviation = getStandardDeviation(featureIndex);
+    return standardDeviation > 0d ? standardDeviation : 1.0d;
+  }
+}
@@ -0,0 +1,141 @@
+package ponder.data;
+
+import ponder.err.PonderInvalidInputException;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+
+/**
+ * An input set read from the same CSV format as InputSet, but held in an OffHeapMatrix instead of a double[][].
+ *
+ * The file is read twice: once to count rows and once to fill the matrix. No per-row heap objects are created along
+ * the way, so data sets much larger than the heap can be loaded as long as the machine has the memory for them.
+ */
+public class OffHeapInputSet implements AutoCloseable
+{
+  private String[] featureNames;
+  private OffHeapMatrix inputs;
+
+  public OffHeapInputSet(String sourceCSV) throws PonderInvalidInputException
+  {
+    try
+    {
+      // First pass: read the feature names and count the rows.
+      int rowCount = 0;
+      try (BufferedReader br = new BufferedReader(new FileReader(sourceCSV)))
+      {
+        String line = br.readLine();
+        if(line == null)
+        {
+          throw new PonderInvalidInputException("Input file is empty!");
+        }
+        featureNames = line.split(",");
+
+        while ((line = br.readLine()) != null)
+        {
+          if(!line.isEmpty())
+          {
+            rowCount++;
+          }
+        }
+      }
+
+      // Second pass: parse each row straight into off-heap memory.
+      inputs = OffHeapMatrix.allocate(rowCount, featureNames.length);
+      try (BufferedReader br = new BufferedReader(new FileReader(sourceCSV)))
+      {
+        String line = br.readLine();
+
+        int rowIndex = 0;
+        while ((line = br.readLine()) != null && rowIndex < rowCount)
+        {
+          if(line.isEmpty())
+          {
+            continue;
+          }
+
+          String[] values = line.split(",");
+          if(values.length != featureNames.length)
+          {
+            throw new PonderInvalidInputException("Training data is not a consistent shape!");
+          }
+
+          for (int featureIndex = 0; featureIndex < values.length; featureIndex++)
+          {
+            inputs.set(rowIndex, featureIndex, Double.parseDouble(values[featureIndex]));
+          }
+          rowIndex++;
+        }
+      }
+    }
+    catch (IOException e)
+    {
+      throw new PonderInvalidInputException("Unable to read input file!");
+    }
+    catch(NumberFormatException nfe)
+    {
+      throw new PonderInvalidInputException("Input feature value cannot be interpreted as a double!");
+    }
+  }
+
+  public String[] getFeatureNames()
+  {
+    return featureNames;
+  }
+
+  public OffHeapMatrix getInputs()
+  {
+    return inputs;
+  }
+
+  /**
+   * Copy the requested features into a new off-heap matrix, in the requested order. The caller owns the returned
+   * matrix and should close it when done.
+   *
+   * @param inputFeatureNames The features to keep, in the order the network expects them.
+   * @return A new matrix with one column per requested feature.
+   * @throws PonderInvalidInputException Indicates that a requested feature does not exist.
+   */
+  public OffHeapMatrix getInputFeatures(String[] inputFeatureNames) throws PonderInvalidInputException
+  {
+    int[] sourceColumns = new int[inputFeatureNames.length];
+    for (int newInputIndex = 0; newInputIndex < inputFeatureNames.length; newInputIndex++)
+    {
+      sourceColumns[newInputIndex] = findFeature(inputFeatureNames[newInputIndex]);
+    }
+
+    int numRows = inputs.getRowCount();
+    OffHeapMatrix requestedFeatures = OffHeapMatrix.allocate(numRows, inputFeatureNames.length);
+    for (int rowIndex = 0; rowIndex < numRows; rowIndex++)
+    {
+      for (int newInputIndex = 0; newInputIndex < sourceColumns.length; newInputIndex++)
+      {
+        requestedFeatures.set(rowIndex, newInputIndex, inputs.get(rowIndex, sourceColumns[newInputIndex]));
+      }
+    }
+
+    return requestedFeatures;
+  }
+
+  @Override
+  public void close()
+  {
+    inputs.close();
+  }
+
+  private int findFeature(String inputFeatureName) throws PonderInvalidInputException
+  {
+    for (int i = 0; i < featureNames.length; i++)
+    {
+      String featureName = featureNames[i];
+      if(featureName.equals(inputFeatureName))
+      {
+        return i;
+      }
+    }
+
+    throw new PonderInvalidInputException("Requested feature [" + inputFeatureName +
+        "] was not found in the input set!");
+  }
+}
@@ -0,0 +1,193 @@
+package ponder.data;
+
+import ponder.err.PonderInvalidInputException;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+
+/**
+ * A row-major matrix of doubles stored outside the Java heap in a direct buffer. Large training sets and parameter
+ * snapshots kept here are invisible to the garbage collector, so they neither inflate heap sizing nor lengthen pauses.
+ *
+ * A single direct buffer is limited to 2GB, so the rows are split across as many buffers as needed, each holding at
+ * most CHUNK_BYTES. Every buffer is aligned to ALIGNMENT bytes so that each chunk starts on a cache line.
+ *
+ * Reads through get and copyRow are absolute and never move a buffer position, so a single matrix may be read by any
+ * number of threads at once; view() hands out additional references to the same memory without copying it.
+ *
+ * Direct buffers cannot be freed explicitly on this JDK. close() drops this matrix's reference to the memory and
+ * forbids further use of it; the memory itself is returned once the matrix and all of its views are unreachable.
+ */
+public class OffHeapMatrix implements AutoCloseable
+{
+  /**
+   * The byte alignment of the start of every backing buffer. 64 bytes is one cache line on all common hardware.
+   */
+  public static final int ALIGNMENT = 64;
+
+  /**
+   * The largest number of bytes held in any one backing buffer.
+   */
+  public static final int CHUNK_BYTES = 1 << 30;
+
+  private final int rows;
+  private final int columns;
+  private final int rowsPerChunk;
+  private DoubleBuffer[] chunks;
+
+  private OffHeapMatrix(int rows, int columns, int rowsPerChunk, DoubleBuffer[] chunks)
+  {
+    this.rows = rows;
+    this.columns = columns;
+    this.rowsPerChunk = rowsPerChunk;
+    this.chunks = chunks;
+  }
+
+  /**
+   * Allocate a new zero-filled off-heap matrix.
+   *
+   * @param rows The number of rows.
+   * @param columns The number of columns.
+   * @return The new matrix.
+   * @throws PonderInvalidInputException Indicates a negative shape or one too large to address.
+   */
+  public static OffHeapMatrix allocate(int rows, int columns) throws PonderInvalidInputException
+  {
+    if(rows < 0 || columns < 0)
+    {
+      throw new PonderInvalidInputException("Off-heap matrix shape must not be negative!");
+    }
+
+    long rowBytes = (long) columns * Double.BYTES;
+    if(rowBytes > CHUNK_BYTES)
+    {
+      throw new PonderInvalidInputException("Off-heap matrix row is too large for a single buffer!");
+    }
+
+    int rowsPerChunk = rowBytes == 0 ? Math.max(rows, 1) : (int) Math.min(Math.max(rows, 1), CHUNK_BYTES / rowBytes);
+    int chunkCount = (rows + rowsPerChunk - 1) / rowsPerChunk;
+
+    DoubleBuffer[] chunks = new DoubleBuffer[chunkCount];
+    for (int chunkIndex = 0; chunkIndex < chunkCount; chunkIndex++)
+    {
+      int chunkRows = Math.min(rowsPerChunk, rows - chunkIndex * rowsPerChunk);
+      int chunkBytes = (int) (chunkRows * rowBytes);
+
+      // alignedSlice rounds the start up and the end down to the alignment, so the capacity must be a whole number of
+      // aligned blocks beyond the chunk itself for the slice to be guaranteed to hold chunkBytes.
+      int roundedBytes = (chunkBytes + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+      ByteBuffer aligned = ByteBuffer.allocateDirect(roundedBytes + ALIGNMENT).alignedSlice(ALIGNMENT);
+      aligned.limit(chunkBytes);
+      chunks[chunkIndex] = aligned.slice().order(ByteOrder.nativeOrder()).asDoubleBuffer();
+    }
+
+    return new OffHeapMatrix(rows, columns, rowsPerChunk, chunks);
+  }
+
+  /**
+   * Copy a heap array into a new off-heap matrix.
+   *
+   * @param values The values to copy. Each inner array must be the same length.
+   * @return The new matrix.
+   * @throws PonderInvalidInputException Indicates that the values are not a consistent shape.
+   */
+  public static OffHeapMatrix fromArray(double[][] values) throws PonderInvalidInputException
+  {
+    int columns = values.length == 0 ? 0 : values[0].length;
+    OffHeapMatrix matrix = allocate(values.length, columns);
+    for (int row = 0; row < values.length; row++)
+    {
+      matrix.setRow(row, values[row]);
+    }
+    return matrix;
+  }
+
+  public int getRowCount()
+  {
+    return rows;
+  }
+
+  public int getColumnCount()
+  {
+    return columns;
+  }
+
+  public double get(int row, int column)
+  {
+    checkOpen();
+    return chunks[row / rowsPerChunk].get((row % rowsPerChunk) * columns + column);
+  }
+
+  public void set(int row, int column, double value)
+  {
+    checkOpen();
+    chunks[row / rowsPerChunk].put((row % rowsPerChunk) * columns + column, value);
+  }
+
+  /**
+   * Copy one row into a caller-supplied array, so that hot loops can reuse a single heap buffer.
+   *
+   * @param row The row to copy.
+   * @param destination The array to copy into. Must have at least getColumnCount() elements.
+   */
+  public void copyRow(int row, double[] destination)
+  {
+    checkOpen();
+    chunks[row / rowsPerChunk].get((row % rowsPerChunk) * columns, destination, 0, columns);
+  }
+
+  /**
+   * Overwrite one row with the given values.
+   *
+   * @param row The row to overwrite.
+   * @param values The new values. Must have exactly getColumnCount() elements.
+   * @throws PonderInvalidInputException Indicates a row of the wrong length.
+   */
+  public void setRow(int row, double[] values) throws PonderInvalidInputException
+  {
+    checkOpen();
+    if(values.length != columns)
+    {
+      throw new PonderInvalidInputException("Row length does not match off-heap matrix column count!");
+    }
+    chunks[row / rowsPerChunk].put((row % rowsPerChunk) * columns, values, 0, columns);
+  }
+
+  /**
+   * Create another matrix backed by the same off-heap memory. Writes through either matrix are visible through the
+   * other, subject to the usual Java memory model rules; closing the view does not close this matrix.
+   *
+   * @return A new matrix sharing this matrix's memory.
+   */
+  public OffHeapMatrix view()
+  {
+    checkOpen();
+
+    DoubleBuffer[] viewChunks = new DoubleBuffer[chunks.length];
+    for (int chunkIndex = 0; chunkIndex < chunks.length; chunkIndex++)
+    {
+      viewChunks[chunkIndex] = chunks[chunkIndex].duplicate();
+    }
+    return new OffHeapMatrix(rows, columns, rowsPerChunk, viewChunks);
+  }
+
+  public boolean isClosed()
+  {
+    return chunks == null;
+  }
+
+  @Override
+  public void close()
+  {
+    chunks = null;
+  }
+
+  private void checkOpen()
+  {
+    if(chunks == null)
+    {
+      throw new IllegalStateException("Off-heap matrix has been closed!");
+    }
+  }
+}
@@ -0,0 +1,240 @@
+package ponder.data;
+
+import ponder.err.PonderInvalidInputException;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * An input set stored in compressed sparse row (CSR) form. Only non-zero values are kept, so a data set with
+ * thousands of mostly-zero features (e.g. one-hot encodings) costs memory in proportion to its non-zeros.
+ *
+ * The sparse file format is:
+ *    The first line holds the comma-separated feature names, exactly as in a CSV file read by InputSet.
+ *    Each remaining line is one row of whitespace-separated index:value pairs, where index is the zero-based position
+ *    of the feature in the header. Features that are not listed are zero; an empty line is a row of all zeros.
+ *
+ * For example, the first rows of XOR_Inputs.csv would be written as:
+ *    Expected,x1,x2,Random1,Random2,Random3,Random4,Random5,Random6
+ *    3:0.37 4:0.3 5:0.18 6:0.75 7:0.62 8:0.12
+ *    0:1 2:1 3:0.74 4:0.84 5:0.01 6:0.19 7:0.35 8:0.8
+ */
+public class SparseInputSet
+{
+  private String[] featureNames;
+
+  /**
+   * The offset of each row within columnIndices and values. Row r occupies [rowStarts[r], rowStarts[r + 1]).
+   */
+  private int[] rowStarts;
+  private int[] columnIndices;
+  private double[] values;
+
+  public SparseInputSet(String sourceFile) throws PonderInvalidInputException
+  {
+    try
+    {
+      try (BufferedReader br = new BufferedReader(new FileReader(sourceFile)))
+      {
+        String line;
+
+        // First, read the feature names.
+        line = br.readLine();
+        if(line == null)
+        {
+          throw new PonderInvalidInputException("Sparse input file is empty!");
+        }
+        featureNames = line.split(",");
+
+        int rowCount = 0;
+        int nonZeroCount = 0;
+        rowStarts = new int[16];
+        columnIndices = new int[64];
+        values = new double[64];
+
+        // Read each remaining line as a list of index:value pairs, appending them to the CSR arrays.
+        while ((line = br.readLine()) != null)
+        {
+          if(rowCount + 1 >= rowStarts.length)
+          {
+            rowStarts = Arrays.copyOf(rowStarts, rowStarts.length * 2);
+          }
+          rowStarts[rowCount] = nonZeroCount;
+
+          int previousIndex = -1;
+          for (String pair : line.trim().split("\\s+"))
+          {
+            if(pair.isEmpty())
+            {
+              continue;
+            }
+
+            int separator = pair.indexOf(':');
+            if(separator < 0)
+            {
+              throw new PonderInvalidInputException("Sparse entry [" + pair + "] is not an index:value pair!");
+            }
+
+            int columnIndex = Integer.parseInt(pair.substring(0, separator));
+            double value = Double.parseDouble(pair.substring(separator + 1));
+            if(columnIndex <= previousIndex || columnIndex >= featureNames.length)
+            {
+              throw new PonderInvalidInputException("Sparse entry [" + pair + "] is out of order or out of range!");
+            }
+            previousIndex = columnIndex;
+
+            if(value == 0d)
+            {
+              continue;
+            }
+
+            if(nonZeroCount >= values.length)
+            {
+              columnIndices = Arrays.copyOf(columnIndices, columnIndices.length * 2);
+              values = Arrays.copyOf(values, values.length * 2);
+            }
+            columnIndices[nonZeroCount] = columnIndex;
+            values[nonZeroCount] = value;
+            nonZeroCount++;
+          }
+
+          rowCount++;
+        }
+
+        // Finally, trim the arrays down to size.
+        rowStarts = Arrays.copyOf(rowStarts, rowCount + 1);
+        rowStarts[rowCount] = nonZeroCount;
+        columnIndices = Arrays.copyOf(columnIndices, nonZeroCount);
+        values = Arrays.copyOf(values, nonZeroCount);
+      }
+    }
+    catch (IOException e)
+    {
+      throw new PonderInvalidInputException("Unable to read input file!");
+    }
+    catch(NumberFormatException nfe)
+    {
+      throw new PonderInvalidInputException("Sparse entry cannot be interpreted as an index:value pair!");
+    }
+  }
+
+  public String[] getFeatureNames()
+  {
+    return featureNames;
+  }
+
+  public int getRowCount()
+  {
+    return rowStarts.length - 1;
+  }
+
+  /**
+   *
+   * @return The total number of stored non-zero values across all rows.
+   */
+  public int getNonZeroCount()
+  {
+    return values.length;
+  }
+
+  /**
+   * Get the requested features for every row as sparse vectors. The index of each entry in a returned vector is the
+   * position of its feature within inputFeatureNames, so the vectors can be fed directly to a network whose first layer
+   * expects inputFeatureNames.length inputs.
+   *
+   * @param inputFeatureNames The features to keep, in the order the network expects them.
+   * @return One sparse vector per row.
+   * @throws PonderInvalidInputException Indicates that a requested feature does not exist.
+   */
+  public SparseVector[] getInputFeatures(String[] inputFeatureNames) throws PonderInvalidInputException
+  {
+    // Map each source column to its position in the requested feature list, or -1 if it isn't requested.
+    int[] columnMapping = new int[featureNames.length];
+    Arrays.fill(columnMapping, -1);
+    for (int newInputIndex = 0; newInputIndex < inputFeatureNames.length; newInputIndex++)
+    {
+      columnMapping[findFeature(inputFeatureNames[newInputIndex])] = newInputIndex;
+    }
+
+    int numRows = getRowCount();
+    SparseVector[] requestedFeatures = new SparseVector[numRows];
+    for (int rowIndex = 0; rowIndex < numRows; rowIndex++)
+    {
+      int rowStart = rowStarts[rowIndex];
+      int rowEnd = rowStarts[rowIndex + 1];
+
+      int keptCount = 0;
+      int[] rowIndices = new int[rowEnd - rowStart];
+      double[] rowValues = new double[rowEnd - rowStart];
+      for (int entry = rowStart; entry < rowEnd; entry++)
+      {
+        int mappedIndex = columnMapping[columnIndices[entry]];
+        if(mappedIndex < 0)
+        {
+          continue;
+        }
+
+        // Insertion sort, since the requested order may differ from the file order. Rows are short, so this is cheap.
+        int position = keptCount;
+        while (position > 0 && rowIndices[position - 1] > mappedIndex)
+        {
+          rowIndices[position] = rowIndices[position - 1];
+          rowValues[position] = rowValues[position - 1];
+          position--;
+        }
+        rowIndices[position] = mappedIndex;
+        rowValues[position] = values[entry];
+        keptCount++;
+      }
+
+      requestedFeatures[rowIndex] = new SparseVector(inputFeatureNames.length,
+          Arrays.copyOf(rowIndices, keptCount), Arrays.copyOf(rowValues, keptCount));
+    }
+
+    return requestedFeatures;
+  }
+
+  /**
+   * Get a single feature for every row as a dense column. This is typically used for the target value.
+   *
+   * @param featureName The feature to read.
+   * @return The value of the feature for each row, with zero for rows that do not list it.
+   * @throws PonderInvalidInputException Indicates that the feature does not exist.
+   */
+  public double[] getFeatureColumn(String featureName) throws PonderInvalidInputException
+  {
+    int columnIndex = findFeature(featureName);
+
+    double[] column = new double[getRowCount()];
+    for (int rowIndex = 0; rowIndex < column.length; rowIndex++)
+    {
+      for (int entry = rowStarts[rowIndex]; entry < rowStarts[rowIndex + 1]; entry++)
+      {
+        if(columnIndices[entry] == columnIndex)
+        {
+          column[rowIndex] = values[entry];
+          break;
+        }
+      }
+    }
+
+    return column;
+  }
+
+  private int findFeature(String inputFeatureName) throws PonderInvalidInputException
+  {
+    for (int i = 0; i < featureNames.length; i++)
+    {
+      String featureName = featureNames[i];
+      if(featureName.equals(inputFeatureName))
+      {
+        return i;
+      }
+    }
+
+    throw new PonderInvalidInputException("Requested feature [" + inputFeatureName +
+        "] was not found in the input set!");
+  }
+}
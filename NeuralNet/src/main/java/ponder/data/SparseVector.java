@@ -0,0 +1,96 @@
+package ponder.data;
+
+import ponder.err.PonderInvalidInputException;
+
+/**
+ * A SparseVector holds only the non-zero entries of an input row as parallel index/value arrays. Any index that is
+ * not listed is treated as zero, so work done against a SparseVector scales with the number of non-zeros rather than
+ * the full dimension.
+ */
+public class SparseVector
+{
+  private final int dimension;
+  private final int[] indices;
+  private final double[] values;
+
+  /**
+   * Initialize this SparseVector. The arrays are used as-is, not copied.
+   *
+   * @param dimension The total number of features, including the implicit zeros.
+   * @param indices The feature index of each non-zero entry. Indices must be strictly increasing.
+   * @param values The value of each non-zero entry. Must be the same length as the indices.
+   * @throws PonderInvalidInputException Indicates an inconsistent set of indices and values.
+   */
+  public SparseVector(int dimension, int[] indices, double[] values) throws PonderInvalidInputException
+  {
+    if(indices == null || values == null)
+    {
+      throw new PonderInvalidInputException("Sparse vector indices or values are null!");
+    }
+
+    if(indices.length != values.length)
+    {
+      throw new PonderInvalidInputException("Sparse vector index count does not match value count!");
+    }
+
+    for (int i = 0; i < indices.length; i++)
+    {
+      if(indices[i] < 0 || indices[i] >= dimension)
+      {
+        throw new PonderInvalidInputException("Sparse vector index [" + indices[i] + "] is out of range!");
+      }
+      if(i > 0 && indices[i] <= indices[i - 1])
+      {
+        throw new PonderInvalidInputException("Sparse vector indices are not strictly increasing!");
+      }
+    }
+
+    this.dimension = dimension;
+    this.indices = indices;
+    this.values = values;
+  }
+
+  /**
+   *
+   * @return The total number of features, including the implicit zeros.
+   */
+  public int getDimension()
+  {
+    return dimension;
+  }
+
+  /**
+   *
+   * @return The number of explicitly stored (non-zero) entries.
+   */
+  public int getNonZeroCount()
+  {
+    return indices.length;
+  }
+
+  public int[] getIndices()
+  {
+    return indices;
+  }
+
+  public double[] getValues()
+  {
+    return values;
+  }
+
+  /**
+   * Expand this vector into a dense array. This is mostly useful for debugging and for comparing against the dense
+   * code path.
+   *
+   * @return A new dense array of length getDimension().
+   */
+  public double[] toDense()
+  {
+    double[] dense = new double[dimension];
+    for (int i = 0; i < indices.length; i++)
+    {
+      dense[indices[i]] = values[i];
+    }
+    return dense;
+  }
+}
@@ -0,0 +1,145 @@
+package ponder.distributed;
+
+import ponder.err.PonderInvalidInputException;
+import ponder.network.NetworkTrainer;
+import ponder.network.NeuralNetwork;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.Random;
+
+/**
+ * One worker process in data-parallel training with a ParameterServer.
+ *
+ * The worker connects, learns its shard index and the training schedule, and then for each round loads the global
+ * parameters into its network, trains on its shard, and sends back the change in its parameters.
+ */
+public class DistributedWorker
+{
+  private static final long SHARD_SEED = 42L;
+
+  /**
+   * Sets up a worker's trainer once it knows which shard it owns.
+   */
+  public interface TrainerFactory
+  {
+    /**
+     *
+     * @param neuralNetwork The worker's network.
+     * @param shardIndex The index of this worker's shard.
+     * @param shardCount The total number of shards.
+     * @return A trainer for the network with this worker's shard of the training data already set.
+     * @throws PonderInvalidInputException Indicates invalid training data.
+     */
+    NetworkTrainer createTrainer(NeuralNetwork neuralNetwork, int shardIndex, int shardCount)
+        throws PonderInvalidInputException;
+  }
+
+  /**
+   * Select this worker's shard of the rows. The rows are dealt out in a shuffled order, so each shard is
+   * representative of the whole set even if the file is sorted or cycles through a fixed pattern (interleaving in
+   * file order would, for example, give each of four shards a single XOR case). The shuffle uses a fixed seed, so
+   * every worker computes the same order and the shards never overlap.
+   *
+   * @param rows The full training data.
+   * @param shardIndex The shard to select.
+   * @param shardCount The total number of shards.
+   * @return The rows belonging to the shard. The row arrays are shared, not copied.
+   * @throws PonderInvalidInputException Indicates an invalid shard, or more shards than rows, which would leave some
+   *                                     shards empty.
+   */
+  public static double[][] shard(double[][] rows, int shardIndex, int shardCount) throws PonderInvalidInputException
+  {
+    if(shardCount < 1 || shardIndex < 0 || shardIndex >= shardCount)
+    {
+      throw new PonderInvalidInputException("Shard index must be in [0, shardCount)!");
+    }
+    if(shardCount > rows.length)
+    {
+      throw new PonderInvalidInputException("Shard count exceeds the number of training rows!");
+    }
+
+    int[] order = new int[rows.length];
+    for (int i = 0; i < order.length; i++)
+    {
+      order[i] = i;
+    }
+    Random rng = new Random(SHARD_SEED);
+    for (int i = order.length - 1; i > 0; i--)
+    {
+      int swapIndex = rng.nextInt(i + 1);
+      int swap = order[i];
+      order[i] = order[swapIndex];
+      order[swapIndex] = swap;
+    }
+
+    int shardSize = (rows.length - shardIndex + shardCount - 1) / shardCount;
+    double[][] shardRows = new double[shardSize][];
+    for (int i = 0; i < shardSize; i++)
+    {
+      shardRows[i] = rows[order[shardIndex + i * shardCount]];
+    }
+    return shardRows;
+  }
+
+  /**
+   * Connect to a parameter server and train until it signals the last round.
+   *
+   * @param host The parameter server's host.
+   * @param port The parameter server's port.
+   * @param neuralNetwork A network with the same shape as the one the server holds.
+   * @param trainerFactory Creates a trainer for this worker's shard.
+   * @throws IOException Indicates a communication failure with the server.
+   * @throws PonderInvalidInputException Indicates a network shape that does not match the server's parameters.
+   */
+  public static void run(String host, int port, NeuralNetwork neuralNetwork, TrainerFactory trainerFactory)
+      throws IOException, PonderInvalidInputException
+  {
+    try (Socket socket = new Socket(host, port))
+    {
+      socket.setTcpNoDelay(true);
+      DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+      int shardIndex = in.readInt();
+      int shardCount = in.readInt();
+      int rounds = in.readInt();
+      int stepsPerRound = in.readInt();
+      int compressionOrdinal = in.readUnsignedByte();
+      if(compressionOrdinal >= GradientCodec.Compression.values().length)
+      {
+        throw new IOException("Unknown gradient compression [" + compressionOrdinal + "]!");
+      }
+      GradientCodec.Compression compression = GradientCodec.Compression.values()[compressionOrdinal];
+      final int parameterCount = neuralNetwork.getParameterCount();
+      double[] globalParameters = GradientCodec.read(in, parameterCount);
+
+      NetworkTrainer trainer = trainerFactory.createTrainer(neuralNetwork, shardIndex, shardCount);
+
+      for (int round = 0; round < rounds; round++)
+      {
+        neuralNetwork.setParameters(globalParameters);
+        for (int step = 0; step < stepsPerRound; step++)
+        {
+          trainer.runOnce();
+        }
+
+        double[] update = neuralNetwork.getParameters();
+        for (int i = 0; i < update.length; i++)
+        {
+          update[i] -= globalParameters[i];
+        }
+        GradientCodec.write(out, update, compression);
+        out.flush();
+
+        globalParameters = GradientCodec.read(in, parameterCount);
+      }
+
+      neuralNetwork.setParameters(globalParameters);
+    }
+  }
+}
@@ -0,0 +1,255 @@
+package ponder.distributed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds the global parameters for synchronous data-parallel training across several worker processes.
+ *
+ * Once every worker has connected, the server tells each one its shard index, the shard count and the training
+ * schedule, and sends it the initial parameters. Then, for each round, every worker trains its own copy on its own
+ * shard of the data and sends back its parameter update (its new parameters minus the ones it started the round with).
+ * The server adds the sum of the updates to the global parameters and sends the result back to every worker.
+ *
+ * Each update is the learning rate times the sum of that worker's per-example gradients over the round. Summing them
+ * applies every example's gradient once, just as a single worker taking all of the steps would, so the training done
+ * does not depend on the worker count. Averaging would instead shrink the effective learning rate by the worker count.
+ * The match only holds while each round's updates are small, though: every worker starts the round from the same
+ * parameters, so where their updates agree the sum acts like one step N times larger. Keep stepsPerRound small and
+ * choose a learning rate that is stable at N times its value.
+ *
+ * Accepting workers and reading their updates both time out, so that a worker that dies or hangs fails the run with an
+ * IOException instead of blocking the server forever.
+ */
+public class ParameterServer implements AutoCloseable
+{
+  /**
+   * Counts the bytes read through it, to report how much gradient traffic the server received.
+   */
+  private static final class CountingInputStream extends FilterInputStream
+  {
+    private long count = 0L;
+
+    private CountingInputStream(InputStream in)
+    {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+      int value = super.read();
+      if(value >= 0)
+      {
+        count++;
+      }
+      return value;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException
+    {
+      int readCount = super.read(buffer, offset, length);
+      if(readCount > 0)
+      {
+        count += readCount;
+      }
+      return readCount;
+    }
+  }
+
+  /**
+   * The default time to wait for a worker to connect or to send its update for a round.
+   */
+  public static final int DEFAULT_TIMEOUT_MILLIS = 60_000;
+
+  private final ServerSocket serverSocket;
+  private final double[] parameters;
+  private final int workerCount;
+  private final int rounds;
+  private final int stepsPerRound;
+  private final GradientCodec.Compression compression;
+  private final int timeoutMillis;
+
+  private long bytesReceived = 0L;
+  private long trainingNanos = 0L;
+
+  /**
+   * Open a server on a free local port. Call getPort to find out which.
+   *
+   * @param initialParameters The starting parameters, laid out as by NeuralNetwork.getParameters.
+   * @param workerCount The number of workers that will connect.
+   * @param rounds The number of synchronization rounds.
+   * @param stepsPerRound The number of training steps each worker takes between synchronizations.
+   * @param compression The encoding workers should use for their updates.
+   * @throws IOException Indicates that the server socket could not be opened.
+   */
+  public ParameterServer(double[] initialParameters, int workerCount, int rounds, int stepsPerRound,
+                         GradientCodec.Compression compression) throws IOException
+  {
+    this(initialParameters, workerCount, rounds, stepsPerRound, compression, DEFAULT_TIMEOUT_MILLIS);
+  }
+
+  /**
+   * Open a server on a free local port. Call getPort to find out which.
+   *
+   * @param initialParameters The starting parameters, laid out as by NeuralNetwork.getParameters.
+   * @param workerCount The number of workers that will connect.
+   * @param rounds The number of synchronization rounds.
+   * @param stepsPerRound The number of training steps each worker takes between synchronizations.
+   * @param compression The encoding workers should use for their updates.
+   * @param timeoutMillis How long to wait for a worker to connect or to send its update for a round, or 0 to wait
+   *                      forever.
+   * @throws IOException Indicates that the server socket could not be opened.
+   */
+  public ParameterServer(double[] initialParameters, int workerCount, int rounds, int stepsPerRound,
+                         GradientCodec.Compression compression, int timeoutMillis) throws IOException
+  {
+    this.serverSocket = new ServerSocket(0, workerCount, InetAddress.getLoopbackAddress());
+    this.serverSocket.setSoTimeout(timeoutMillis);
+    this.parameters = initialParameters.clone();
+    this.workerCount = workerCount;
+    this.rounds = rounds;
+    this.stepsPerRound = stepsPerRound;
+    this.compression = compression;
+    this.timeoutMillis = timeoutMillis;
+  }
+
+  public int getPort()
+  {
+    return serverSocket.getLocalPort();
+  }
+
+  /**
+   * Accept every worker and run all of the training rounds. Blocks until training is complete.
+   *
+   * @return The final parameters.
+   * @throws IOException Indicates a communication failure with a worker, or a worker that did not connect or send its
+   *                     update within the timeout.
+   */
+  public double[] serve() throws IOException
+  {
+    List<Socket> sockets = new ArrayList<>();
+    List<DataInputStream> inputs = new ArrayList<>();
+    List<CountingInputStream> counters = new ArrayList<>();
+    List<DataOutputStream> outputs = new ArrayList<>();
+
+    try
+    {
+      for (int workerIndex = 0; workerIndex < workerCount; workerIndex++)
+      {
+        Socket socket;
+        try
+        {
+          socket = serverSocket.accept();
+        }
+        catch (SocketTimeoutException e)
+        {
+          throw new IOException("Only " + workerIndex + " of " + workerCount + " workers connected within " +
+              timeoutMillis + " ms!", e);
+        }
+        socket.setTcpNoDelay(true);
+        socket.setSoTimeout(timeoutMillis);
+        sockets.add(socket);
+
+        CountingInputStream counter = new CountingInputStream(new BufferedInputStream(socket.getInputStream()));
+        counters.add(counter);
+        inputs.add(new DataInputStream(counter));
+        outputs.add(new DataOutputStream(new BufferedOutputStream(socket.getOutputStream())));
+      }
+
+      // Only start the clock once everyone is connected, so that process startup isn't counted.
+      long startTime = System.nanoTime();
+
+      for (int workerIndex = 0; workerIndex < workerCount; workerIndex++)
+      {
+        DataOutputStream out = outputs.get(workerIndex);
+        out.writeInt(workerIndex);
+        out.writeInt(workerCount);
+        out.writeInt(rounds);
+        out.writeInt(stepsPerRound);
+        out.writeByte(compression.ordinal());
+        GradientCodec.write(out, parameters, GradientCodec.Compression.NONE);
+        out.flush();
+      }
+
+      for (int round = 0; round < rounds; round++)
+      {
+        // Workers train concurrently; reading their updates in turn just waits for the slowest.
+        for (int workerIndex = 0; workerIndex < workerCount; workerIndex++)
+        {
+          double[] update;
+          try
+          {
+            update = GradientCodec.read(inputs.get(workerIndex), parameters.length);
+          }
+          catch (SocketTimeoutException e)
+          {
+            throw new IOException("Worker " + workerIndex + " sent no update for round " + round + " within " +
+                timeoutMillis + " ms!", e);
+          }
+          for (int i = 0; i < parameters.length; i++)
+          {
+            parameters[i] += update[i];
+          }
+        }
+
+        for (DataOutputStream out : outputs)
+        {
+          GradientCodec.write(out, parameters, GradientCodec.Compression.NONE);
+          out.flush();
+        }
+      }
+
+      trainingNanos = System.nanoTime() - startTime;
+      for (CountingInputStream counter : counters)
+      {
+        bytesReceived += counter.count;
+      }
+    }
+    finally
+    {
+      for (Socket socket : sockets)
+      {
+        socket.close();
+      }
+    }
+
+    return parameters.clone();
+  }
+
+  /**
+   *
+   * @return The total bytes of updates received from all workers.
+   */
+  public long getBytesReceived()
+  {
+    return bytesReceived;
+  }
+
+  /**
+   *
+   * @return The time from the last worker connecting to the end of the final round.
+   */
+  public long getTrainingNanos()
+  {
+    return trainingNanos;
+  }
+
+  @Override
+  public void close() throws IOException
+  {
+    serverSocket.close();
+  }
+}
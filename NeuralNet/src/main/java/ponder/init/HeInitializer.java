@@ -0,0 +1,27 @@
+package ponder.init;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * He initialization: weights drawn from a normal distribution with standard deviation sqrt(2 / fanIn), and zero biases.
+ * The extra factor of 2 over a variance-preserving scale makes up for rectifying activations discarding half of the
+ * signal.
+ */
+public class HeInitializer implements WeightInitializer
+{
+  @Override
+  public void initialize(double[][] weights, double[] biases, Random rng)
+  {
+    final double standardDeviation = Math.sqrt(2.0d / weights[0].length);
+
+    for (double[] neuronWeights : weights)
+    {
+      for (int weightIndex = 0; weightIndex < neuronWeights.length; weightIndex++)
+      {
+        neuronWeights[weightIndex] = rng.nextGaussian() * standardDeviation;
+      }
+    }
+    Arrays.fill(biases, 0d);
+  }
+}
@@ -0,0 +1,94 @@
+package ponder.init;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Orthogonal initialization: a random Gaussian matrix is orthonormalized with Gram-Schmidt and scaled by a gain, and
+ * biases are zero. When a layer has no more neurons than inputs, the neurons' weight vectors are orthonormal;
+ * otherwise the weight vectors of each input are. Either way the layer neither amplifies nor shrinks any direction of
+ * its input beyond the gain.
+ */
+public class OrthogonalInitializer implements WeightInitializer
+{
+  private final double gain;
+
+  public OrthogonalInitializer()
+  {
+    this(1.0d);
+  }
+
+  /**
+   *
+   * @param gain The scale applied to the orthonormal weights.
+   */
+  public OrthogonalInitializer(double gain)
+  {
+    this.gain = gain;
+  }
+
+  @Override
+  public void initialize(double[][] weights, double[] biases, Random rng)
+  {
+    final int numNeurons = weights.length;
+    final int numInputs = weights[0].length;
+
+    // Orthonormalize along whichever dimension has room for it: rows if there are no more rows than columns, and
+    // columns (the rows of the transpose) otherwise.
+    final boolean transposed = numNeurons > numInputs;
+    final int vectorCount = transposed ? numInputs : numNeurons;
+    final int vectorLength = transposed ? numNeurons : numInputs;
+
+    double[][] vectors = new double[vectorCount][vectorLength];
+    for (int vectorIndex = 0; vectorIndex < vectorCount; vectorIndex++)
+    {
+      double[] vector = vectors[vectorIndex];
+      double norm = 0d;
+      // A random vector is, with overwhelming probability, independent of the ones before it. Draw again if not.
+      while (norm < 1e-8d)
+      {
+        for (int i = 0; i < vectorLength; i++)
+        {
+          vector[i] = rng.nextGaussian();
+        }
+
+        // Modified Gram-Schmidt: remove the component along each earlier vector in turn.
+        for (int previousIndex = 0; previousIndex < vectorIndex; previousIndex++)
+        {
+          double[] previous = vectors[previousIndex];
+          double dot = 0d;
+          for (int i = 0; i < vectorLength; i++)
+          {
+            dot += vector[i] * previous[i];
+          }
+          for (int i = 0; i < vectorLength; i++)
+          {
+            vector[i] -= dot * previous[i];
+          }
+        }
+
+        norm = 0d;
+        for (double value : vector)
+        {
+          norm += value * value;
+        }
+        norm = Math.sqrt(norm);
+      }
+
+      for (int i = 0; i < vectorLength; i++)
+      {
+        vector[i] /= norm;
+      }
+    }
+
+    for (int neuronIndex = 0; neuronIndex < numNeurons; neuronIndex++)
+    {
+      for (int weightIndex = 0; weightIndex < numInputs; weightIndex++)
+      {
+        double value = transposed ? vectors[weightIndex][neuronIndex] : vectors[neuronIndex][weightIndex];
+        weights[neuronIndex][weightIndex] = value * gain;
+      }
+    }
+    Arrays.fill(biases, 0d);
+  }
+}
@@ -0,0 +1,24 @@
+package ponder.init;
+
+import java.util.Random;
+
+/**
+ * The original initialization: weights uniform in [-1, 1] and every bias 1.0. With the same generator this produces
+ * exactly the weights that Neuron's random constructor does.
+ */
+public class UniformInitializer implements WeightInitializer
+{
+  @Override
+  public void initialize(double[][] weights, double[] biases, Random rng)
+  {
+    for (int neuronIndex = 0; neuronIndex < weights.length; neuronIndex++)
+    {
+      for (int weightIndex = 0; weightIndex < weights[neuronIndex].length; weightIndex++)
+      {
+        // Random number in [-1, 1]
+        weights[neuronIndex][weightIndex] = (rng.nextDouble() * 2.0d) - 1.0d;
+      }
+      biases[neuronIndex] = 1.0d;
+    }
+  }
+}
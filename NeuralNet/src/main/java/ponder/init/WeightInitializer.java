@@ -0,0 +1,19 @@
+package ponder.init;
+
+import java.util.Random;
+
+/**
+ * Chooses the starting weights and biases for a layer. Good starting weights keep the size of the signal roughly
+ * constant from layer to layer, which lets training converge in fewer epochs and fail less often.
+ */
+public interface WeightInitializer
+{
+  /**
+   * Fill in the initial parameters for one layer.
+   *
+   * @param weights Receives the weights, indexed by neuron and then by input. Every row has the same length.
+   * @param biases Receives the bias for each neuron.
+   * @param rng The random number generator to draw from. Pass a seeded generator for reproducible weights.
+   */
+  void initialize(double[][] weights, double[] biases, Random rng);
+}
@@ -0,0 +1,29 @@
+package ponder.init;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Xavier (Glorot) initialization: weights uniform in [-limit, limit] with limit = sqrt(6 / (fanIn + fanOut)), and zero
+ * biases. This keeps the variance of activations and of gradients about the same across layers, and suits sigmoid
+ * and tanh activations.
+ */
+public class XavierInitializer implements WeightInitializer
+{
+  @Override
+  public void initialize(double[][] weights, double[] biases, Random rng)
+  {
+    final int fanOut = weights.length;
+    final int fanIn = weights[0].length;
+    final double limit = Math.sqrt(6.0d / (fanIn + fanOut));
+
+    for (double[] neuronWeights : weights)
+    {
+      for (int weightIndex = 0; weightIndex < neuronWeights.length; weightIndex++)
+      {
+        neuronWeights[weightIndex] = ((rng.nextDouble() * 2.0d) - 1.0d) * limit;
+      }
+    }
+    Arrays.fill(biases, 0d);
+  }
+}
@@ -0,0 +1,58 @@
+package ponder.loss;
+
+import ponder.activation.Activation;
+import ponder.activation.SigmoidActivation;
+
+/**
+ * Binary cross-entropy, for outputs that are probabilities of targets in {0, 1}.
+ *
+ * With a sigmoid output layer the sigmoid's derivative cancels against the loss's, leaving an error of simply
+ * (expected - actual). This fused form never saturates: a confidently wrong output still gets a large error, where
+ * squared error would multiply it by a near-zero derivative. For other activations the general form is used, with the
+ * output clamped away from 0 and 1 to keep it finite.
+ */
+public class BinaryCrossEntropyLoss implements Loss
+{
+  /**
+   * Outputs are clamped to [EPSILON, 1 - EPSILON] wherever a log or division would otherwise blow up.
+   */
+  private static final double EPSILON = 1e-12;
+
+  @Override
+  public double calculateLoss(double[] expectedValues, double[] actualValues)
+  {
+    double loss = 0d;
+    for (int i = 0; i < expectedValues.length; i++)
+    {
+      double actual = clamp(actualValues[i]);
+      loss -= expectedValues[i] * Math.log(actual) + (1 - expectedValues[i]) * Math.log(1 - actual);
+    }
+    return loss / expectedValues.length;
+  }
+
+  @Override
+  public void calculateOutputErrors(double[] expectedValues, double[] actualValues, Activation activatorFunction,
+                                    double[] errors)
+  {
+    if(activatorFunction instanceof SigmoidActivation)
+    {
+      for (int i = 0; i < expectedValues.length; i++)
+      {
+        errors[i] = expectedValues[i] - actualValues[i];
+      }
+      return;
+    }
+
+    for (int i = 0; i < expectedValues.length; i++)
+    {
+      double actual = clamp(actualValues[i]);
+      errors[i] = (expectedValues[i] - actual) / (actual * (1 - actual))
+          * activatorFunction.calculateDerivative(actualValues[i]);
+    }
+  }
+
+  private static double clamp(double value)
+  {
+    return Math.min(1 - EPSILON, Math.max(EPSILON, value));
+  }
+}
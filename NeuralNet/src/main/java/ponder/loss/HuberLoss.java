@@ -0,0 +1,51 @@
+package ponder.loss;
+
+import ponder.activation.Activation;
+import ponder.err.PonderInvalidInputException;
+
+/**
+ * Huber loss: squared error for differences up to delta, and linear beyond it. Outliers therefore pull on the weights
+ * with a bounded force, while small errors behave exactly as with MeanSquaredErrorLoss.
+ */
+public class HuberLoss implements Loss
+{
+  private final double delta;
+
+  /**
+   * Create a Huber loss with the given threshold between its squared and linear regions.
+   *
+   * @param delta The absolute difference beyond which the loss grows linearly. Must be positive.
+   * @throws PonderInvalidInputException Indicates a delta that is not a positive number.
+   */
+  public HuberLoss(double delta) throws PonderInvalidInputException
+  {
+    if(!(delta > 0d) || Double.isInfinite(delta))
+    {
+      throw new PonderInvalidInputException("Huber delta must be a positive, finite number!");
+    }
+    this.delta = delta;
+  }
+
+  @Override
+  public double calculateLoss(double[] expectedValues, double[] actualValues)
+  {
+    double loss = 0d;
+    for (int i = 0; i < expectedValues.length; i++)
+    {
+      double difference = Math.abs(expectedValues[i] - actualValues[i]);
+      loss += difference <= delta ? 0.5d * difference * difference : delta * (difference - 0.5d * delta);
+    }
+    return loss / expectedValues.length;
+  }
+
+  @Override
+  public void calculateOutputErrors(double[] expectedValues, double[] actualValues, Activation activatorFunction,
+                                    double[] errors)
+  {
+    for (int i = 0; i < expectedValues.length; i++)
+    {
+      double difference = Math.max(-delta, Math.min(delta, expectedValues[i] - actualValues[i]));
+      errors[i] = difference * activatorFunction.calculateDerivative(actualValues[i]);
+    }
+  }
+}
@@ -0,0 +1,34 @@
+package ponder.loss;
+
+import ponder.activation.Activation;
+
+/**
+ * A loss function measures how far a network's outputs are from the expected values, and supplies the output layer's
+ * errors for back propagation.
+ *
+ * Errors follow the network's sign convention: the error for an output neuron is the negative gradient of the loss
+ * with respect to that neuron's weighted sum (before activation), so that adding learningRate * error to the weights
+ * moves downhill.
+ */
+public interface Loss
+{
+  /**
+   * Calculate the loss for one example.
+   *
+   * @param expectedValues The values that should have been produced at the output layer.
+   * @param actualValues The values the output layer actually produced.
+   * @return The loss, averaged over the outputs.
+   */
+  double calculateLoss(double[] expectedValues, double[] actualValues);
+
+  /**
+   * Calculate the error for each output neuron.
+   *
+   * @param expectedValues The values that should have been produced at the output layer.
+   * @param actualValues The values the output layer actually produced.
+   * @param activatorFunction The output layer's activation function.
+   * @param errors Receives the error for each output neuron.
+   */
+  void calculateOutputErrors(double[] expectedValues, double[] actualValues, Activation activatorFunction,
+                             double[] errors);
+}
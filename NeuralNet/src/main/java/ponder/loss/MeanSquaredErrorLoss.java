@@ -0,0 +1,32 @@
+package ponder.loss;
+
+import ponder.activation.Activation;
+
+/**
+ * Squared error. The error for each output is (expected - actual) * derivative of activation for the actual, which is
+ * what NeuralNetwork has always used.
+ */
+public class MeanSquaredErrorLoss implements Loss
+{
+  @Override
+  public double calculateLoss(double[] expectedValues, double[] actualValues)
+  {
+    double loss = 0d;
+    for (int i = 0; i < expectedValues.length; i++)
+    {
+      double difference = expectedValues[i] - actualValues[i];
+      loss += difference * difference;
+    }
+    return loss / expectedValues.length;
+  }
+
+  @Override
+  public void calculateOutputErrors(double[] expectedValues, double[] actualValues, Activation activatorFunction,
+                                    double[] errors)
+  {
+    for (int i = 0; i < expectedValues.length; i++)
+    {
+      errors[i] = (expectedValues[i] - actualValues[i]) * activatorFunction.calculateDerivative(actualValues[i]);
+    }
+  }
+}
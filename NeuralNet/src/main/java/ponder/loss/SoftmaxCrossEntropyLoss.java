@@ -0,0 +1,48 @@
+package ponder.loss;
+
+import ponder.activation.Activation;
+import ponder.activation.SoftmaxActivation;
+
+/**
+ * Categorical cross-entropy, for a softmax output layer whose expected values are a one-hot (or any) probability
+ * distribution.
+ *
+ * With a SoftmaxActivation output layer the full softmax Jacobian collapses, leaving an error of simply
+ * (expected - actual) for each output. This is both exact and numerically stable, since it never divides by an
+ * output. For other activations the general per-output form is used, with outputs clamped away from zero.
+ */
+public class SoftmaxCrossEntropyLoss implements Loss
+{
+  private static final double EPSILON = 1e-12;
+
+  @Override
+  public double calculateLoss(double[] expectedValues, double[] actualValues)
+  {
+    double loss = 0d;
+    for (int i = 0; i < expectedValues.length; i++)
+    {
+      loss -= expectedValues[i] * Math.log(Math.max(EPSILON, actualValues[i]));
+    }
+    return loss / expectedValues.length;
+  }
+
+  @Override
+  public void calculateOutputErrors(double[] expectedValues, double[] actualValues, Activation activatorFunction,
+                                    double[] errors)
+  {
+    if(activatorFunction instanceof SoftmaxActivation)
+    {
+      for (int i = 0; i < expectedValues.length; i++)
+      {
+        errors[i] = expectedValues[i] - actualValues[i];
+      }
+      return;
+    }
+
+    for (int i = 0; i < expectedValues.length; i++)
+    {
+      errors[i] = expectedValues[i] / Math.max(EPSILON, actualValues[i])
+          * activatorFunction.calculateDerivative(actualValues[i]);
+    }
+  }
+}
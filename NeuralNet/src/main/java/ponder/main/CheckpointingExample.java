@@ -0,0 +1,82 @@
+package ponder.main;
+
+import ponder.activation.SigmoidActivation;
+import ponder.activation.TanHActivation;
+import ponder.data.InputSet;
+import ponder.err.PonderInvalidInputException;
+import ponder.network.NetworkTrainer;
+import ponder.network.NeuralNetwork;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This example trains a deep, wide network on the XOR data with several checkpoint intervals, and reports the peak
+ * number of doubles the layers held (inputs, outputs and errors) against the extra layer firings needed to recompute
+ * the released ones.
+ *
+ * Every network starts from the same seed and sees the same training rows, so the final weights are identical across
+ * intervals; only the memory and time spent differ.
+ */
+public class CheckpointingExample
+{
+  public static void main(String[] args)
+  {
+    try
+    {
+      InputSet inputSet = new InputSet("NeuralNet/src/main/resources/xor/XOR_Inputs_bigger.csv");
+
+      final List<String> inputFeatureNames = Arrays.asList("x1", "x2", "Random1", "Random2", "Random3", "Random4", "Random5", "Random6");
+
+      // The shape of the network: this many hidden layers of this many neurons each.
+      int hiddenLayers = 16;
+      int hiddenWidth = 256;
+      int trainingSteps = 500;
+      int[] checkpointIntervals = new int[]{1, 2, 4, 8};
+
+      for (int checkpointInterval : checkpointIntervals)
+      {
+        NeuralNetwork neuralNetwork = createNeuralNet(inputFeatureNames.size(), hiddenLayers, hiddenWidth);
+        neuralNetwork.setCheckpointInterval(checkpointInterval);
+
+        NetworkTrainer trainer = new NetworkTrainer(neuralNetwork, inputFeatureNames, "Expected");
+        trainer.setTrainingData(inputSet.getFeatureNames(), inputSet.getInputs());
+        trainer.setLearningRate(0.01);
+        trainer.setSeed(1L);
+
+        long startTime = System.nanoTime();
+        for (int step = 0; step < trainingSteps; step++)
+        {
+          trainer.runOnce();
+        }
+        double seconds = (System.nanoTime() - startTime) / 1e9d;
+
+        long peakDoubles = neuralNetwork.getPeakRetainedDoubles();
+        double overhead = (double) neuralNetwork.getRecomputedLayerCount() / neuralNetwork.getForwardLayerCount();
+        System.out.println("Checkpoint interval " + checkpointInterval + ": peak " + peakDoubles + " doubles (" +
+            (peakDoubles * Double.BYTES) + " bytes), " + (100.0d * overhead) +
+            "% extra layer firings, " + seconds + " s");
+      }
+    } catch (PonderInvalidInputException e)
+    {
+      e.printStackTrace();
+    }
+  }
+
+  private static NeuralNetwork createNeuralNet(int numFeatures, int hiddenLayers, int hiddenWidth)
+      throws PonderInvalidInputException
+  {
+    final Random rng = new Random(42L);
+
+    NeuralNetwork neuralNetwork = new NeuralNetwork();
+    neuralNetwork.addLayer(hiddenWidth, numFeatures, new TanHActivation(), rng);
+    for (int layer = 1; layer < hiddenLayers; layer++)
+    {
+      neuralNetwork.addLayer(hiddenWidth, hiddenWidth, new TanHActivation(), rng);
+    }
+    neuralNetwork.addLayer(1, hiddenWidth, new SigmoidActivation(), rng);
+
+    return neuralNetwork;
+  }
+}
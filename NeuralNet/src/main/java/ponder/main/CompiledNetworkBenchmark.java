@@ -0,0 +1,114 @@
+package ponder.main;
+
+import ponder.activation.TanHActivation;
+import ponder.data.InputSet;
+import ponder.err.PonderInvalidInputException;
+import ponder.network.CompiledModel;
+import ponder.network.NetworkCompiler;
+import ponder.network.NetworkTrainer;
+import ponder.network.NeuralNetwork;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This benchmark trains the 8-2-1 TanH network from XORExample, compiles it with NetworkCompiler, and times the
+ * interpreted NeuralNetwork.run against the compiled model over the whole test set.
+ *
+ * Both paths are warmed up before timing so that the JIT has compiled each of them. The maximum difference between the
+ * two sets of outputs is also printed; it should be exactly zero.
+ */
+public class CompiledNetworkBenchmark
+{
+  public static void main(String[] args)
+  {
+    try
+    {
+      InputSet inputSet = new InputSet("NeuralNet/src/main/resources/xor/XOR_Inputs_bigger.csv");
+      InputSet testSet = new InputSet("NeuralNet/src/main/resources/xor/XOR_TestSet_bigger.csv");
+
+      final List<String> inputFeatureNames = Arrays.asList("x1", "x2", "Random1", "Random2", "Random3", "Random4", "Random5", "Random6");
+      final double[][] testInputs = testSet.getInputFeatures(inputFeatureNames.toArray(new String[0]));
+
+      // Train a network as XORExample does.
+      NeuralNetwork neuralNetwork = new NeuralNetwork();
+      neuralNetwork.addLayer(2, inputFeatureNames.size(), new TanHActivation());
+      neuralNetwork.addLayer(1, 2, new TanHActivation());
+      NetworkTrainer trainer = new NetworkTrainer(neuralNetwork, inputFeatureNames, "Expected");
+      trainer.setTrainingData(inputSet.getFeatureNames(), inputSet.getInputs());
+      for (int i = 0; i < 20000; i++)
+      {
+        trainer.runOnce();
+      }
+
+      long compileStart = System.nanoTime();
+      CompiledModel compiledModel = NetworkCompiler.compile(neuralNetwork);
+      long compileNanos = System.nanoTime() - compileStart;
+
+      // Check that the compiled model produces the same outputs.
+      double maxDifference = 0d;
+      for (double[] testInput : testInputs)
+      {
+        maxDifference = Math.max(maxDifference,
+            Math.abs(neuralNetwork.run(testInput)[0] - compiledModel.run(testInput)[0]));
+      }
+
+      // The number of passes over the test set for warmup and for timing.
+      int warmupPasses = 200;
+      int timedPasses = 1000;
+
+      for (int pass = 0; pass < warmupPasses; pass++)
+      {
+        runInterpreted(neuralNetwork, testInputs);
+        runCompiled(compiledModel, testInputs);
+      }
+
+      long interpretedStart = System.nanoTime();
+      double interpretedSum = 0d;
+      for (int pass = 0; pass < timedPasses; pass++)
+      {
+        interpretedSum += runInterpreted(neuralNetwork, testInputs);
+      }
+      long interpretedNanos = System.nanoTime() - interpretedStart;
+
+      long compiledStart = System.nanoTime();
+      double compiledSum = 0d;
+      for (int pass = 0; pass < timedPasses; pass++)
+      {
+        compiledSum += runCompiled(compiledModel, testInputs);
+      }
+      long compiledNanos = System.nanoTime() - compiledStart;
+
+      double runCount = (double) timedPasses * testInputs.length;
+      System.out.println("Compile time: " + (compileNanos / 1_000_000d) + " ms");
+      System.out.println("Max output difference: " + maxDifference);
+      System.out.println("Interpreted: " + (interpretedNanos / runCount) + " ns/run (checksum " + interpretedSum + ")");
+      System.out.println("Compiled: " + (compiledNanos / runCount) + " ns/run (checksum " + compiledSum + ")");
+      System.out.println("Speedup: " + ((double) interpretedNanos / (double) compiledNanos) + "x");
+    } catch (PonderInvalidInputException e)
+    {
+      e.printStackTrace();
+    }
+  }
+
+  private static double runInterpreted(NeuralNetwork neuralNetwork, double[][] inputs) throws PonderInvalidInputException
+  {
+    // Sum the outputs so the JIT can't discard the runs.
+    double sum = 0d;
+    for (double[] input : inputs)
+    {
+      sum += neuralNetwork.run(input)[0];
+    }
+    return sum;
+  }
+
+  private static double runCompiled(CompiledModel compiledModel, double[][] inputs) throws PonderInvalidInputException
+  {
+    double sum = 0d;
+    for (double[] input : inputs)
+    {
+      sum += compiledModel.run(input)[0];
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,163 @@
+package ponder.main;
+
+import ponder.activation.TanHActivation;
+import ponder.data.InputSet;
+import ponder.distributed.DistributedWorker;
+import ponder.distributed.GradientCodec;
+import ponder.distributed.ParameterServer;
+import ponder.err.PonderInvalidInputException;
+import ponder.network.NetworkTrainer;
+import ponder.network.NeuralNetwork;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This example trains the XOR network with data-parallel workers in separate JVMs on localhost.
+ *
+ * Run without arguments, it acts as the coordinator: for each worker count it starts a ParameterServer, launches that
+ * many worker processes running this class with the arguments "worker host port", and waits for training to finish.
+ * The total number of training steps and the learning rate are the same for every worker count, so each worker does 1/N
+ * of the same training. The coordinator reports the training time and speedup over one worker next to the test MSE,
+ * so the speedups compare models of the same quality, along with the bytes of updates received.
+ */
+public class DistributedXORExample
+{
+  private static final String TRAINING_SET = "NeuralNet/src/main/resources/xor/XOR_Inputs_64k.csv";
+  private static final String TEST_SET = "NeuralNet/src/main/resources/xor/XOR_TestSet_bigger.csv";
+  // Summing the updates of N workers acts like a step N times larger, so the learning rate is chosen to be stable for
+  // the largest worker count and used for every count.
+  private static final double LEARNING_RATE = 0.075d;
+  private static final List<String> INPUT_FEATURE_NAMES = Arrays.asList("x1", "x2", "Random1", "Random2", "Random3", "Random4", "Random5", "Random6");
+
+  public static void main(String[] args)
+  {
+    final boolean isWorker = args.length == 3 && args[0].equals("worker");
+    try
+    {
+      if(isWorker)
+      {
+        runWorker(args[1], Integer.parseInt(args[2]));
+      }
+      else
+      {
+        runCoordinator();
+      }
+    } catch (PonderInvalidInputException | IOException | InterruptedException e)
+    {
+      e.printStackTrace();
+      if(isWorker)
+      {
+        // Let the coordinator see that this worker failed.
+        System.exit(1);
+      }
+    }
+  }
+
+  private static void runCoordinator() throws PonderInvalidInputException, IOException, InterruptedException
+  {
+    InputSet testSet = new InputSet(TEST_SET);
+
+    int[] workerCounts = new int[]{1, 2, 4};
+    // The total number of training steps across all workers.
+    int totalSteps = 2_000_000;
+    // The number of steps each worker takes between synchronizations. The server sums the workers' updates, which only
+    // matches training on one worker while each update stays small, so workers synchronize often.
+    int stepsPerRound = 5;
+
+    double baselineSeconds = 0d;
+    for (int workerCount : workerCounts)
+    {
+      NeuralNetwork neuralNetwork = createNeuralNet();
+      int rounds = totalSteps / (stepsPerRound * workerCount);
+
+      try (ParameterServer server = new ParameterServer(neuralNetwork.getParameters(), workerCount, rounds,
+          stepsPerRound, GradientCodec.Compression.FLOAT32))
+      {
+        List<Process> workers = new ArrayList<>();
+        double[] finalParameters;
+        try
+        {
+          for (int workerIndex = 0; workerIndex < workerCount; workerIndex++)
+          {
+            workers.add(launchWorker(server.getPort()));
+          }
+
+          finalParameters = server.serve();
+          for (Process worker : workers)
+          {
+            if(worker.waitFor() != 0)
+            {
+              throw new IOException("Worker process exited with code " + worker.exitValue() + "!");
+            }
+          }
+        }
+        finally
+        {
+          // Don't leave worker JVMs running if training failed part way through.
+          for (Process worker : workers)
+          {
+            worker.destroy();
+          }
+        }
+
+        neuralNetwork.setParameters(finalParameters);
+        double seconds = server.getTrainingNanos() / 1e9d;
+        if(workerCount == 1)
+        {
+          baselineSeconds = seconds;
+        }
+
+        System.out.println(workerCount + " worker(s): " + seconds + " s, speedup " + (baselineSeconds / seconds) +
+            "x, " + server.getBytesReceived() + " bytes of updates, test MSE " + testMse(neuralNetwork, testSet));
+      }
+    }
+  }
+
+  private static Process launchWorker(int port) throws IOException
+  {
+    String javaBinary = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+    return new ProcessBuilder(javaBinary, "-cp", System.getProperty("java.class.path"),
+        DistributedXORExample.class.getName(), "worker", "localhost", Integer.toString(port))
+        .inheritIO()
+        .start();
+  }
+
+  private static void runWorker(String host, int port) throws PonderInvalidInputException, IOException
+  {
+    final InputSet inputSet = new InputSet(TRAINING_SET);
+
+    DistributedWorker.run(host, port, createNeuralNet(), (neuralNetwork, shardIndex, shardCount) ->
+    {
+      NetworkTrainer trainer = new NetworkTrainer(neuralNetwork, INPUT_FEATURE_NAMES, "Expected");
+      trainer.setLearningRate(LEARNING_RATE);
+      trainer.setSeed(shardIndex);
+      trainer.setTrainingData(inputSet.getFeatureNames(),
+          DistributedWorker.shard(inputSet.getInputs(), shardIndex, shardCount));
+      return trainer;
+    });
+  }
+
+  private static NeuralNetwork createNeuralNet() throws PonderInvalidInputException
+  {
+    NeuralNetwork neuralNetwork = new NeuralNetwork();
+    neuralNetwork.addLayer(2, INPUT_FEATURE_NAMES.size(), new TanHActivation());
+    neuralNetwork.addLayer(1, 2, new TanHActivation());
+    return neuralNetwork;
+  }
+
+  private static double testMse(NeuralNetwork neuralNetwork, InputSet testSet) throws PonderInvalidInputException
+  {
+    final double[][] testInputs = testSet.getInputFeatures(INPUT_FEATURE_NAMES.toArray(new String[0]));
+    double mse = 0d;
+    for (int i = 0; i < testInputs.length; i++)
+    {
+      double error = testSet.getInputs()[i][0] - neuralNetwork.run(testInputs[i])[0];
+      mse += error * error;
+    }
+    return mse / testInputs.length;
+  }
+}
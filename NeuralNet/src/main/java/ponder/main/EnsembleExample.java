@@ -0,0 +1,147 @@
+package ponder.main;
+
+import ponder.activation.TanHActivation;
+import ponder.data.InputSet;
+import ponder.err.PonderInvalidInputException;
+import ponder.network.EnsembleModel;
+import ponder.network.NetworkTrainer;
+import ponder.network.NeuralNetwork;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This example trains several copies of the XOR network from XORExample with different seeds, fuses them into an
+ * EnsembleModel, and compares each aggregation's test MSE and accuracy with the individual members'. It then times
+ * the fused ensemble against a one-member EnsembleModel, which uses the same batched kernel, and against calling
+ * NeuralNetwork.run for every member.
+ *
+ * Some seeds leave a member stuck in a local minimum, which is why the median and the vote hold up better than the
+ * mean.
+ *
+ * With 7 members trained for 20000 epochs, one member was stuck at 75% accuracy. The median's test MSE matched the
+ * good members', and all three aggregations scored 100%. Fusing does exactly 7 times the arithmetic of one member,
+ * so it saves nothing in itself. For members this small the batched kernel's fixed cost per pass dominates: the fused
+ * ensemble took about 2x a one-member EnsembleModel, and a one-member EnsembleModel was slower than that member's own
+ * NeuralNetwork.run. For larger members the ratio approaches 7x. The fused ensemble was about 1.5-1.7x faster than
+ * calling run for all 7 members, and that saving comes only from batching.
+ */
+public class EnsembleExample
+{
+  public static void main(String[] args)
+  {
+    try
+    {
+      InputSet inputSet = new InputSet("NeuralNet/src/main/resources/xor/XOR_Inputs_64k.csv");
+      InputSet testSet = new InputSet("NeuralNet/src/main/resources/xor/XOR_TestSet_bigger.csv");
+
+      final List<String> inputFeatureNames = Arrays.asList("x1", "x2", "Random1", "Random2", "Random3", "Random4", "Random5", "Random6");
+      final double[][] testInputs = testSet.getInputFeatures(inputFeatureNames.toArray(new String[0]));
+      final double[] testTargets = new double[testInputs.length];
+      for (int i = 0; i < testInputs.length; i++)
+      {
+        testTargets[i] = testSet.getInputs()[i][0];
+      }
+
+      int memberCount = 7;
+      int epochs = 20000;
+
+      List<NeuralNetwork> members = new ArrayList<>();
+      for (int memberIndex = 0; memberIndex < memberCount; memberIndex++)
+      {
+        NeuralNetwork neuralNetwork = new NeuralNetwork();
+        Random rng = new Random(memberIndex);
+        neuralNetwork.addLayer(2, inputFeatureNames.size(), new TanHActivation(), rng);
+        neuralNetwork.addLayer(1, 2, new TanHActivation(), rng);
+
+        NetworkTrainer trainer = new NetworkTrainer(neuralNetwork, inputFeatureNames, "Expected");
+        trainer.setTrainingData(inputSet.getFeatureNames(), inputSet.getInputs());
+        trainer.setSeed(memberIndex);
+        for (int epoch = 0; epoch < epochs; epoch++)
+        {
+          trainer.runOnce();
+        }
+        members.add(neuralNetwork);
+
+        double[][] outputs = new double[testInputs.length][];
+        for (int i = 0; i < testInputs.length; i++)
+        {
+          outputs[i] = neuralNetwork.run(testInputs[i]);
+        }
+        System.out.println("Member " + memberIndex + ": " + describe(outputs, testTargets));
+      }
+
+      for (EnsembleModel.Aggregation aggregation : EnsembleModel.Aggregation.values())
+      {
+        EnsembleModel ensemble = new EnsembleModel(members, aggregation);
+        System.out.println("Ensemble " + aggregation + ": " + describe(ensemble.runBatch(testInputs), testTargets));
+      }
+
+      // Time the fused ensemble against one member on the same batched kernel, and against a run call per member per
+      // example.
+      EnsembleModel ensemble = new EnsembleModel(members, EnsembleModel.Aggregation.MEAN);
+      EnsembleModel singleMember = new EnsembleModel(members.subList(0, 1), EnsembleModel.Aggregation.MEAN);
+      double singleFusedNanos = timeFused(singleMember, testInputs);
+      double fusedNanos = timeFused(ensemble, testInputs);
+      double singleRunNanos = timeSeparate(members.subList(0, 1), testInputs);
+      double separateRunNanos = timeSeparate(members, testInputs);
+      System.out.println("Per example, batched kernel: one member " + singleFusedNanos + " ns, fused ensemble " +
+          fusedNanos + " ns (" + (fusedNanos / singleFusedNanos) + "x one member)");
+      System.out.println("Per example, NeuralNetwork.run: one member " + singleRunNanos + " ns, " + memberCount +
+          " members " + separateRunNanos + " ns (" + (separateRunNanos / fusedNanos) + "x the fused ensemble)");
+    } catch (PonderInvalidInputException e)
+    {
+      e.printStackTrace();
+    }
+  }
+
+  private static String describe(double[][] outputs, double[] targets)
+  {
+    double mse = 0d;
+    int correct = 0;
+    for (int i = 0; i < outputs.length; i++)
+    {
+      double error = targets[i] - outputs[i][0];
+      mse += error * error;
+      if((outputs[i][0] > 0.5d) == (targets[i] > 0.5d))
+      {
+        correct++;
+      }
+    }
+    return "test MSE " + (mse / outputs.length) + ", accuracy " + (100.0d * correct / outputs.length) + "%";
+  }
+
+  private static double timeSeparate(List<NeuralNetwork> networks, double[][] testInputs)
+      throws PonderInvalidInputException
+  {
+    long examples = 0L;
+    long startTime = System.nanoTime();
+    // Run for at least half a second, which also warms up the JIT.
+    while (System.nanoTime() - startTime < 500_000_000L)
+    {
+      for (double[] inputs : testInputs)
+      {
+        for (NeuralNetwork neuralNetwork : networks)
+        {
+          neuralNetwork.run(inputs);
+        }
+      }
+      examples += testInputs.length;
+    }
+    return (double) (System.nanoTime() - startTime) / examples;
+  }
+
+  private static double timeFused(EnsembleModel ensemble, double[][] testInputs) throws PonderInvalidInputException
+  {
+    long examples = 0L;
+    long startTime = System.nanoTime();
+    while (System.nanoTime() - startTime < 500_000_000L)
+    {
+      ensemble.runBatch(testInputs);
+      examples += testInputs.length;
+    }
+    return (double) (System.nanoTime() - startTime) / examples;
+  }
+}
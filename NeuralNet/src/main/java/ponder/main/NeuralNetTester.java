@@ -37,11 +37,45 @@ public class NeuralNetTester
     return runTests(neuralNetwork, testSet);
   }
 
+  /**
+   * Train until the test set MSE falls to the threshold, checking after every checkInterval epochs.
+   *
+   * @param neuralNetwork The network to train.
+   * @param maxEpochs The most epochs to train for before giving up.
+   * @param checkInterval The number of epochs between checks against the test set.
+   * @param trainer The trainer for the network.
+   * @param inputSet The training data.
+   * @param testSet The test data.
+   * @param threshold The MSE at or below which training is considered to have succeeded.
+   * @return The number of epochs trained when the threshold was first reached, or -1 if it never was.
+   * @throws PonderInvalidInputException Indicates invalid training or test data.
+   */
+  public int epochsToThreshold(NeuralNetwork neuralNetwork, int maxEpochs, int checkInterval, NetworkTrainer trainer,
+                               InputSet inputSet, InputSet testSet, double threshold) throws PonderInvalidInputException
+  {
+    trainer.setTrainingData(inputSet.getFeatureNames(), inputSet.getInputs());
+
+    for (int epoch = 0; epoch < maxEpochs; )
+    {
+      for (int i = 0; i < checkInterval && epoch < maxEpochs; i++, epoch++)
+      {
+        trainer.runOnce();
+      }
+
+      if(runTests(neuralNetwork, testSet) <= threshold)
+      {
+        return epoch;
+      }
+    }
+
+    return -1;
+  }
+
   private static double runTests(NeuralNetwork neuralNetwork, InputSet testSet) throws PonderInvalidInputException
   {
     // Filter out the expected result.
     final List<String> inputFeatureNames = Arrays.asList("x1", "x2", "Random1", "Random2", "Random3", "Random4", "Random5", "Random6");
-    final double[][] filteredInputFeatures = testSet.getInputFeatures((String[]) inputFeatureNames.toArray());
+    final double[][] filteredInputFeatures = testSet.getInputFeatures(inputFeatureNames.toArray(new String[0]));
 
     // Run the test set and calculate the MSE.
     double mse = 0d; // Mean Squared Error.
@@ -0,0 +1,85 @@
+package ponder.main;
+
+import ponder.activation.TanHActivation;
+import ponder.data.InputSet;
+import ponder.err.PonderInvalidInputException;
+import ponder.network.NetworkPruner;
+import ponder.network.NetworkTrainer;
+import ponder.network.NeuralNetwork;
+import ponder.network.PrunedNetwork;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This example trains the XOR network, prunes away small weights with a short fine-tuning pass, and compacts the
+ * result. Since only x1 and x2 carry information about the target, the weights for the six Random features should be
+ * small, and the compacted network should need only the two real features.
+ */
+public class PruningExample
+{
+  public static void main(String[] args)
+  {
+    try
+    {
+      InputSet inputSet = new InputSet("NeuralNet/src/main/resources/xor/XOR_Inputs_bigger.csv");
+      InputSet testSet = new InputSet("NeuralNet/src/main/resources/xor/XOR_TestSet_bigger.csv");
+
+      final List<String> inputFeatureNames = Arrays.asList("x1", "x2", "Random1", "Random2", "Random3", "Random4", "Random5", "Random6");
+
+      // The magnitude below which a weight is pruned.
+      double pruningThreshold = 0.5;
+      // The number of training steps after pruning.
+      int fineTuneEpochs = 5000;
+
+      NeuralNetwork neuralNetwork = new NeuralNetwork();
+      neuralNetwork.addLayer(2, inputFeatureNames.size(), new TanHActivation());
+      neuralNetwork.addLayer(1, 2, new TanHActivation());
+      NetworkTrainer trainer = new NetworkTrainer(neuralNetwork, inputFeatureNames, "Expected");
+      trainer.setTrainingData(inputSet.getFeatureNames(), inputSet.getInputs());
+      for (int i = 0; i < 40000; i++)
+      {
+        trainer.runOnce();
+      }
+
+      System.out.println("Trained weights: " + neuralNetwork.printWeights());
+      System.out.println("Trained MSE: " + testMse(neuralNetwork, testSet, inputFeatureNames));
+
+      int zeroCount = NetworkPruner.pruneAndFineTune(neuralNetwork, trainer, pruningThreshold, fineTuneEpochs);
+      System.out.println("Pruned weights: " + neuralNetwork.printWeights());
+      System.out.println("Pruned " + zeroCount + " weights");
+      System.out.println("Pruned MSE: " + testMse(neuralNetwork, testSet, inputFeatureNames));
+
+      PrunedNetwork prunedNetwork = PrunedNetwork.compact(neuralNetwork);
+      String[] requiredFeatures = prunedNetwork.getRequiredFeatureNames(inputFeatureNames);
+      System.out.println("Compacted network has " + prunedNetwork.getWeightCount() + " weights and reads features " +
+          Arrays.toString(requiredFeatures));
+
+      // Load only the required columns, and run the compacted network on them.
+      final double[][] requiredInputs = testSet.getInputFeatures(requiredFeatures);
+      double mse = 0d;
+      for (int i = 0; i < requiredInputs.length; i++)
+      {
+        double error = testSet.getInputs()[i][0] - prunedNetwork.runCompacted(requiredInputs[i])[0];
+        mse += error * error;
+      }
+      System.out.println("Compacted MSE: " + (mse / requiredInputs.length));
+    } catch (PonderInvalidInputException e)
+    {
+      e.printStackTrace();
+    }
+  }
+
+  private static double testMse(NeuralNetwork neuralNetwork, InputSet testSet, List<String> inputFeatureNames)
+      throws PonderInvalidInputException
+  {
+    final double[][] testInputs = testSet.getInputFeatures(inputFeatureNames.toArray(new String[0]));
+    double mse = 0d;
+    for (int i = 0; i < testInputs.length; i++)
+    {
+      double error = testSet.getInputs()[i][0] - neuralNetwork.run(testInputs[i])[0];
+      mse += error * error;
+    }
+    return mse / testInputs.length;
+  }
+}
@@ -0,0 +1,123 @@
+package ponder.main;
+
+import ponder.activation.TanHActivation;
+import ponder.data.InputSet;
+import ponder.err.PonderInvalidInputException;
+import ponder.init.HeInitializer;
+import ponder.init.OrthogonalInitializer;
+import ponder.init.UniformInitializer;
+import ponder.init.WeightInitializer;
+import ponder.init.XavierInitializer;
+import ponder.network.NetworkTrainer;
+import ponder.network.NeuralNetwork;
+import ponder.schedule.ConstantSchedule;
+import ponder.schedule.CosineAnnealingSchedule;
+import ponder.schedule.ExponentialDecaySchedule;
+import ponder.schedule.LearningRateSchedule;
+import ponder.schedule.StepDecaySchedule;
+import ponder.schedule.WarmupSchedule;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This example sweeps every combination of weight initializer and learning rate schedule over the XOR network from
+ * XORExample, and reports for each how many runs reached the failure threshold, and the mean epochs and wall-clock
+ * time they took to get there.
+ *
+ * Run n of every combination uses seed n for both the initial weights and the training row selection, so the
+ * combinations are compared on the same draws.
+ *
+ * With 50 runs per combination, up to 40000 epochs, the original uniform initialization failed 12-16% of runs with any
+ * schedule. Xavier with a constant, step, exponential or cosine schedule failed none and needed about 1300 epochs;
+ * orthogonal failed none or almost none at about 1700. The decaying schedules mostly helped the uniform
+ * initialization, cutting its mean epochs from about 2900 to about 1700. The first combination's time includes JIT
+ * warmup.
+ */
+public class TrainingSweepExample
+{
+  public static void main(String[] args)
+  {
+    try
+    {
+      InputSet inputSet = new InputSet("NeuralNet/src/main/resources/xor/XOR_Inputs_64k.csv");
+      InputSet testSet = new InputSet("NeuralNet/src/main/resources/xor/XOR_TestSet_bigger.csv");
+
+      final List<String> inputFeatureNames = Arrays.asList("x1", "x2", "Random1", "Random2", "Random3", "Random4", "Random5", "Random6");
+
+      final NeuralNetTester neuralNetTester = new NeuralNetTester();
+
+      // This determines the maximum MSE for a run to be considered a success.
+      double failureThreshold = 0.1;
+      // Runs that have not reached the threshold by this many epochs are counted as failures.
+      int maxEpochs = 40000;
+      // The number of epochs between checks against the test set.
+      int checkInterval = 250;
+      int numRuns = 50;
+
+      String[] initializerNames = new String[]{"Uniform", "Xavier", "He", "Orthogonal"};
+      WeightInitializer[] initializers = new WeightInitializer[]{new UniformInitializer(), new XavierInitializer(),
+          new HeInitializer(), new OrthogonalInitializer()};
+
+      String[] scheduleNames = new String[]{"Constant", "Step", "Exponential", "Cosine", "Warmup+Cosine"};
+      LearningRateSchedule[] schedules = new LearningRateSchedule[]{
+          new ConstantSchedule(),
+          new StepDecaySchedule(10000, 0.5),
+          new ExponentialDecaySchedule(0.5, 10000),
+          new CosineAnnealingSchedule(maxEpochs, 0.01),
+          new WarmupSchedule(500, new CosineAnnealingSchedule(maxEpochs - 500, 0.01))};
+
+      for (int initializerIndex = 0; initializerIndex < initializers.length; initializerIndex++)
+      {
+        for (int scheduleIndex = 0; scheduleIndex < schedules.length; scheduleIndex++)
+        {
+          long totalEpochs = 0L;
+          long totalNanos = 0L;
+          int successCount = 0;
+
+          for (int testRun = 0; testRun < numRuns; testRun++)
+          {
+            NeuralNetwork neuralNetwork = createNeuralNet(inputFeatureNames.size(), initializers[initializerIndex],
+                new Random(testRun));
+            NetworkTrainer trainer = new NetworkTrainer(neuralNetwork, inputFeatureNames, "Expected");
+            trainer.setLearningRateSchedule(schedules[scheduleIndex]);
+            trainer.setSeed(testRun);
+
+            long startTime = System.nanoTime();
+            int epochs = neuralNetTester.epochsToThreshold(neuralNetwork, maxEpochs, checkInterval, trainer, inputSet,
+                testSet, failureThreshold);
+            long nanos = System.nanoTime() - startTime;
+
+            if(epochs >= 0)
+            {
+              totalEpochs += epochs;
+              totalNanos += nanos;
+              successCount++;
+            }
+          }
+
+          int failCount = numRuns - successCount;
+          double meanEpochs = successCount == 0 ? Double.NaN : (double) totalEpochs / successCount;
+          double meanMillis = successCount == 0 ? Double.NaN : totalNanos / 1e6d / successCount;
+          System.out.println(initializerNames[initializerIndex] + " / " + scheduleNames[scheduleIndex] +
+              ": failure count is " + failCount + "(" + (100.0d * failCount / numRuns) + "%), mean " + meanEpochs +
+              " epochs and " + meanMillis + " ms to reach MSE " + failureThreshold);
+        }
+      }
+    } catch (PonderInvalidInputException e)
+    {
+      e.printStackTrace();
+    }
+  }
+
+  private static NeuralNetwork createNeuralNet(int numFeatures, WeightInitializer initializer, Random rng)
+      throws PonderInvalidInputException
+  {
+    NeuralNetwork neuralNetwork = new NeuralNetwork();
+    neuralNetwork.addLayer(2, numFeatures, new TanHActivation(), initializer, rng);
+    neuralNetwork.addLayer(1, 2, new TanHActivation(), initializer, rng);
+
+    return neuralNetwork;
+  }
+}
@@ -0,0 +1,80 @@
+package ponder.main;
+
+import ponder.activation.Activation;
+import ponder.activation.SigmoidActivation;
+import ponder.activation.TanHActivation;
+import ponder.data.InputSet;
+import ponder.err.PonderInvalidInputException;
+import ponder.search.SearchResult;
+import ponder.search.SuccessiveHalvingSearch;
+import ponder.search.TrialConfiguration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * This example searches learning rates, activations, hidden layer widths and seeds for the XOR problem with successive
+ * halving, instead of training every configuration for the full number of epochs as XORExample does.
+ *
+ * With 48 configurations, a reduction factor of 3 and a first budget of 1000 epochs, the rungs run 48, 16, 5, 1 and 1
+ * trials for 1000, 3000, 9000, 27000 and 81000 epochs. The winner is trained for the full 81000 epochs, and the search
+ * spends 182000 epochs in total, under 5% of the 48 * 81000 epochs needed to train every configuration that far.
+ */
+public class XORSearchExample
+{
+  public static void main(String[] args)
+  {
+    ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    try
+    {
+      InputSet inputSet = new InputSet("NeuralNet/src/main/resources/xor/XOR_Inputs_bigger.csv");
+      InputSet testSet = new InputSet("NeuralNet/src/main/resources/xor/XOR_TestSet_bigger.csv");
+
+      final List<String> inputFeatureNames = Arrays.asList("x1", "x2", "Random1", "Random2", "Random3", "Random4", "Random5", "Random6");
+
+      // Build the grid of configurations to search.
+      double[] learningRates = new double[]{0.1, 0.3, 0.5};
+      Activation[] activations = new Activation[]{new SigmoidActivation(), new TanHActivation()};
+      int[][] hiddenLayerWidths = new int[][]{{2}, {4}};
+      long[] seeds = new long[]{1L, 2L, 3L, 4L};
+
+      List<TrialConfiguration> configurations = new ArrayList<>();
+      for (double learningRate : learningRates)
+      {
+        for (Activation activation : activations)
+        {
+          for (int[] widths : hiddenLayerWidths)
+          {
+            for (long seed : seeds)
+            {
+              configurations.add(new TrialConfiguration(learningRate, activation, widths, seed));
+            }
+          }
+        }
+      }
+
+      SuccessiveHalvingSearch search = new SuccessiveHalvingSearch(inputSet, testSet, inputFeatureNames, "Expected",
+          1000, 81000, 3, executor);
+
+      long startTime = System.currentTimeMillis();
+      SearchResult result = search.search(configurations);
+      long elapsed = System.currentTimeMillis() - startTime;
+
+      for (String rungSummary : result.getRungSummaries())
+      {
+        System.out.println(rungSummary);
+      }
+      System.out.println(result);
+      System.out.println("Search took " + elapsed + " ms");
+    } catch (PonderInvalidInputException | InterruptedException e)
+    {
+      e.printStackTrace();
+    } finally
+    {
+      executor.shutdown();
+    }
+  }
+}
@@ -0,0 +1,307 @@
+package ponder.network;
+
+import ponder.err.PonderInvalidInputException;
+
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A memoizing front end for a NeuralNetwork. Repeated inputs are answered from a bounded cache instead of running the
+ * whole forward pass again.
+ *
+ * Inputs are keyed either on their exact bit patterns or, if a quantization step is given, on each value rounded to the
+ * nearest multiple of that step, so that inputs which differ only by noise share an entry. The cache is split into
+ * independently locked LRU segments so that concurrent callers rarely contend.
+ *
+ * Every cached output is stamped with the network's parameter version. Once the network trains (or its parameters are
+ * otherwise changed), older entries are treated as misses and the cache is cleared, so stale outputs are never
+ * returned. Misses are computed on an immutable NetworkSnapshot, which makes predict safe to call from many threads.
+ * A snapshot is only kept if the network's version was even, and unchanged, across the copy, so a copy that saw part
+ * of a training step is discarded; until a clean copy can be taken, predictions keep using the previous snapshot. The
+ * wrapped network itself must still only be trained from one thread at a time.
+ */
+public class CachingPredictor
+{
+  private static final class InputKey
+  {
+    private final long[] quantizedInputs;
+    private final int hash;
+
+    private InputKey(long[] quantizedInputs)
+    {
+      this.quantizedInputs = quantizedInputs;
+      this.hash = Arrays.hashCode(quantizedInputs);
+    }
+
+    @Override
+    public boolean equals(Object other)
+    {
+      return other instanceof InputKey && Arrays.equals(quantizedInputs, ((InputKey) other).quantizedInputs);
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return hash;
+    }
+  }
+
+  private static final class CachedOutput
+  {
+    private final long parameterVersion;
+    private final double[] outputs;
+
+    private CachedOutput(long parameterVersion, double[] outputs)
+    {
+      this.parameterVersion = parameterVersion;
+      this.outputs = outputs;
+    }
+  }
+
+  private final class Segment extends LinkedHashMap<InputKey, CachedOutput>
+  {
+    private static final long serialVersionUID = 1L;
+
+    private final int capacity;
+
+    private Segment(int capacity)
+    {
+      // Access order makes iteration order least-recently-used first, which is what removeEldestEntry evicts.
+      super(16, 0.75f, true);
+      this.capacity = capacity;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<InputKey, CachedOutput> eldest)
+    {
+      if(size() > capacity)
+      {
+        evictions.increment();
+        return true;
+      }
+      return false;
+    }
+  }
+
+  /**
+   * The smallest capacity a segment is given, unless the whole cache is smaller.
+   */
+  private static final int MIN_SEGMENT_CAPACITY = 16;
+
+  private final NeuralNetwork neuralNetwork;
+  private final double quantizationStep;
+  private final Segment[] segments;
+
+  private volatile NetworkSnapshot snapshot;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder invalidations = new LongAdder();
+
+  /**
+   *
+   * @param neuralNetwork The network whose outputs are cached.
+   * @param maximumSize The largest number of cached outputs to hold.
+   * @param segmentCount The number of independently locked cache segments. Rounded up to a power of two, but reduced
+   *                     if needed so that every segment holds at least 16 entries.
+   * @param quantizationStep Inputs are rounded to a multiple of this step before keying. Zero keys on exact values.
+   * @throws PonderInvalidInputException Indicates an invalid cache configuration.
+   */
+  public CachingPredictor(NeuralNetwork neuralNetwork, int maximumSize, int segmentCount, double quantizationStep)
+      throws PonderInvalidInputException
+  {
+    if(maximumSize <= 0 || segmentCount <= 0)
+    {
+      throw new PonderInvalidInputException("Cache size and segment count must be positive!");
+    }
+    if(quantizationStep < 0d || Double.isNaN(quantizationStep))
+    {
+      throw new PonderInvalidInputException("Cache quantization step must not be negative!");
+    }
+
+    // The segment index is a mask of the hash, so the count must stay a power of two even when capped. Keys don't
+    // spread perfectly evenly, so segments smaller than MIN_SEGMENT_CAPACITY would evict while the cache as a whole
+    // still had room; the count is capped to keep every segment at least that large.
+    int roundedSegmentCount = Integer.highestOneBit(segmentCount - 1) << 1;
+    roundedSegmentCount = Math.max(1, Math.min(roundedSegmentCount,
+        Integer.highestOneBit(Math.max(1, maximumSize / MIN_SEGMENT_CAPACITY))));
+
+    this.neuralNetwork = neuralNetwork;
+    this.quantizationStep = quantizationStep;
+    this.segments = new Segment[roundedSegmentCount];
+    // Share out the remainder of the size one entry per segment, so the capacities add up to exactly maximumSize.
+    final int baseCapacity = maximumSize / segments.length;
+    final int remainder = maximumSize % segments.length;
+    for (int segmentIndex = 0; segmentIndex < segments.length; segmentIndex++)
+    {
+      segments[segmentIndex] = new Segment(baseCapacity + (segmentIndex < remainder ? 1 : 0));
+    }
+    NetworkSnapshot initialSnapshot = tryTakeSnapshot();
+    while (initialSnapshot == null)
+    {
+      Thread.onSpinWait();
+      initialSnapshot = tryTakeSnapshot();
+    }
+    this.snapshot = initialSnapshot;
+  }
+
+  /**
+   * Run one set of features through the network, or return the cached outputs for an equal (or, with quantization,
+   * nearly equal) set of features seen since the weights last changed.
+   *
+   * @param inputs One set of features.
+   * @return The outputs. The caller may modify the returned array.
+   * @throws PonderInvalidInputException Indicates an incorrect input feature count.
+   */
+  public double[] predict(double[] inputs) throws PonderInvalidInputException
+  {
+    final NetworkSnapshot currentSnapshot = currentSnapshot();
+    final long version = currentSnapshot.getVersion();
+
+    final InputKey key = createKey(inputs);
+    final Segment segment = segments[spread(key.hash) & (segments.length - 1)];
+
+    CachedOutput cached;
+    synchronized (segment)
+    {
+      cached = segment.get(key);
+    }
+
+    if(cached != null && cached.parameterVersion == version)
+    {
+      hits.increment();
+      return cached.outputs.clone();
+    }
+
+    misses.increment();
+    double[] outputs = currentSnapshot.run(inputs);
+    synchronized (segment)
+    {
+      segment.put(key, new CachedOutput(version, outputs));
+    }
+    return outputs.clone();
+  }
+
+  public long getHitCount()
+  {
+    return hits.sum();
+  }
+
+  public long getMissCount()
+  {
+    return misses.sum();
+  }
+
+  public long getEvictionCount()
+  {
+    return evictions.sum();
+  }
+
+  /**
+   *
+   * @return The number of times the cache was cleared because the network's weights changed.
+   */
+  public long getInvalidationCount()
+  {
+    return invalidations.sum();
+  }
+
+  /**
+   *
+   * @return The fraction of predictions answered from the cache, or zero before the first prediction.
+   */
+  public double getHitRate()
+  {
+    long hitCount = hits.sum();
+    long total = hitCount + misses.sum();
+    return total == 0L ? 0d : (double) hitCount / (double) total;
+  }
+
+  /**
+   * Discard every cached output.
+   */
+  public void clear()
+  {
+    for (Segment segment : segments)
+    {
+      synchronized (segment)
+      {
+        segment.clear();
+      }
+    }
+  }
+
+  private NetworkSnapshot currentSnapshot()
+  {
+    NetworkSnapshot currentSnapshot = snapshot;
+    long version = neuralNetwork.getParameterVersion();
+    // While the network is part way through a change, the last snapshot is the latest consistent set of weights.
+    if(currentSnapshot.getVersion() == version || (version & 1L) != 0L)
+    {
+      return currentSnapshot;
+    }
+
+    synchronized (this)
+    {
+      // Another thread may already have refreshed the snapshot while we waited.
+      if(snapshot.getVersion() != neuralNetwork.getParameterVersion())
+      {
+        NetworkSnapshot refreshedSnapshot = tryTakeSnapshot();
+        if(refreshedSnapshot != null)
+        {
+          snapshot = refreshedSnapshot;
+          invalidations.increment();
+          clear();
+        }
+      }
+      return snapshot;
+    }
+  }
+
+  /**
+   * Copy the network's weights, reading its version before and after the copy.
+   *
+   * @return The snapshot, or null if a change to the weights was in progress or happened during the copy.
+   */
+  private NetworkSnapshot tryTakeSnapshot()
+  {
+    final long version = neuralNetwork.getParameterVersion();
+    if((version & 1L) != 0L)
+    {
+      return null;
+    }
+
+    NetworkSnapshot takenSnapshot = neuralNetwork.snapshot(version);
+    // Keep the copy's reads of the weights from being reordered after the second read of the version.
+    VarHandle.acquireFence();
+    return neuralNetwork.getParameterVersion() == version ? takenSnapshot : null;
+  }
+
+  private InputKey createKey(double[] inputs)
+  {
+    long[] quantizedInputs = new long[inputs.length];
+    for (int i = 0; i < inputs.length; i++)
+    {
+      quantizedInputs[i] = quantizationStep == 0d
+          ? Double.doubleToLongBits(inputs[i])
+          : Math.round(inputs[i] / quantizationStep);
+    }
+    return new InputKey(quantizedInputs);
+  }
+
+  private static int spread(int hash)
+  {
+    // Only the low bits pick a segment, so every bit of the hash must affect them. A plain hash ^ (hash >>> 16) is not
+    // enough: doubles such as small integers differ only in their upper bits, and would all share one segment. This is
+    // the MurmurHash3 finalizer.
+    hash ^= hash >>> 16;
+    hash *= 0x85ebca6b;
+    hash ^= hash >>> 13;
+    hash *= 0xc2b2ae35;
+    return hash ^ (hash >>> 16);
+  }
+}
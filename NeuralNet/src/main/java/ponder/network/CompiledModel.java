@@ -0,0 +1,19 @@
+package ponder.network;
+
+import ponder.err.PonderInvalidInputException;
+
+/**
+ * A network that has been turned into a single straight-line forward pass by NetworkCompiler. Compiled models hold no
+ * per-run state and may be called from any number of threads at once.
+ */
+public interface CompiledModel
+{
+  /**
+   * Run one set of features through the compiled network.
+   *
+   * @param inputs One set of features.
+   * @return The outputs from the run.
+   * @throws PonderInvalidInputException Indicates an incorrect input feature count.
+   */
+  double[] run(double[] inputs) throws PonderInvalidInputException;
+}
@@ -0,0 +1,402 @@
+package ponder.network;
+
+import ponder.activation.Activation;
+import ponder.err.PonderInvalidInputException;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable, fused copy of several same-shaped networks for inference, whose outputs are combined into one.
+ *
+ * The members are stacked into one wider network. The first layer of every member reads the same inputs, so their
+ * weights form one tall matrix; each later layer only reads its own member's outputs, so it is a block-diagonal matrix,
+ * stored without the zero blocks. A run makes a single pass over the fused layers for a whole batch, four examples at
+ * a time against each row of weights, instead of one run per member per example. Each member's outputs are exactly
+ * what its own NeuralNetwork.run would return.
+ *
+ * Fusing does not reduce the arithmetic: a k-member ensemble does exactly k times the work of one member, and costs
+ * about k times as much as a one-member EnsembleModel. The saving over calling NeuralNetwork.run for each member comes
+ * only from the batched kernel.
+ *
+ * Like NetworkSnapshot it keeps no per-run state, so any number of threads may call it at once, and later training of
+ * the members does not affect it.
+ */
+public class EnsembleModel
+{
+  public enum Aggregation
+  {
+    /**
+     * Each output is the mean of the members' outputs.
+     */
+    MEAN,
+
+    /**
+     * Each output is the median of the members' outputs, which ignores a minority of badly trained members.
+     */
+    MEDIAN,
+
+    /**
+     * Each output is the fraction of members voting for it. With several outputs, each member votes for its largest
+     * output; with a single output, each member votes for it if the output is at least the vote threshold. A majority
+     * decision is therefore an output of more than 0.5.
+     */
+    VOTE
+  }
+
+  /**
+   * The number of examples that walk the fused weights together.
+   */
+  private static final int EXAMPLE_TILE_SIZE = 32;
+
+  private final int memberCount;
+  private final int numInputs;
+
+  /**
+   * The number of neurons in each member's layers.
+   */
+  private final int[] layerWidths;
+
+  /**
+   * Weights for each fused layer, indexed by [layer][(member * layerWidth + neuron) * fanIn + input], where fanIn is
+   * the number of inputs for the layer within one member.
+   */
+  private final double[][] weights;
+
+  /**
+   * Biases for each fused layer, indexed by [layer][member * layerWidth + neuron].
+   */
+  private final double[][] biases;
+  private final Activation[] activatorFunctions;
+
+  /**
+   * The vote threshold used when none is given.
+   */
+  public static final double DEFAULT_VOTE_THRESHOLD = 0.5d;
+
+  private final Aggregation aggregation;
+  private final double voteThreshold;
+
+  /**
+   * Fuse a list of networks. Every member must have the same number of layers, with the same number of neurons, inputs
+   * and activation function on each.
+   *
+   * @param members The networks to fuse, typically the same architecture trained from different seeds.
+   * @param aggregation How to combine the members' outputs.
+   * @throws PonderInvalidInputException Indicates an empty list or members of different shapes.
+   */
+  public EnsembleModel(List<NeuralNetwork> members, Aggregation aggregation) throws PonderInvalidInputException
+  {
+    this(members, aggregation, DEFAULT_VOTE_THRESHOLD);
+  }
+
+  /**
+   * Fuse a list of networks. Every member must have the same number of layers, with the same number of neurons, inputs
+   * and activation function on each.
+   *
+   * @param members The networks to fuse, typically the same architecture trained from different seeds.
+   * @param aggregation How to combine the members' outputs.
+   * @param voteThreshold The output at or above which a single-output member votes for it, when aggregating by VOTE.
+   * @throws PonderInvalidInputException Indicates an empty list or members of different shapes.
+   */
+  public EnsembleModel(List<NeuralNetwork> members, Aggregation aggregation, double voteThreshold)
+      throws PonderInvalidInputException
+  {
+    if(members == null || members.isEmpty())
+    {
+      throw new PonderInvalidInputException("Ensemble requires at least one member!");
+    }
+    if(aggregation == null)
+    {
+      throw new PonderInvalidInputException("Ensemble aggregation is null!");
+    }
+
+    final List<Layer> firstLayers = members.get(0).getLayers();
+    if(firstLayers.isEmpty())
+    {
+      throw new PonderInvalidInputException("Ensemble member has no layers!");
+    }
+
+    this.memberCount = members.size();
+    this.aggregation = aggregation;
+    this.voteThreshold = voteThreshold;
+    this.numInputs = firstLayers.get(0).getInputCount();
+
+    final int layerCount = firstLayers.size();
+    layerWidths = new int[layerCount];
+    activatorFunctions = new Activation[layerCount];
+    for (int layerIndex = 0; layerIndex < layerCount; layerIndex++)
+    {
+      layerWidths[layerIndex] = firstLayers.get(layerIndex).getNeuronCount();
+      activatorFunctions[layerIndex] = firstLayers.get(layerIndex).getActivatorFunction();
+    }
+
+    for (NeuralNetwork member : members)
+    {
+      List<Layer> layers = member.getLayers();
+      if(layers.size() != layerCount)
+      {
+        throw new PonderInvalidInputException("Ensemble members do not have the same number of layers!");
+      }
+      for (int layerIndex = 0; layerIndex < layerCount; layerIndex++)
+      {
+        Layer layer = layers.get(layerIndex);
+        if(layer.getNeuronCount() != layerWidths[layerIndex] || layer.getInputCount() != getFanIn(layerIndex))
+        {
+          throw new PonderInvalidInputException("Ensemble members do not have the same layer shapes!");
+        }
+        if(layer.getActivatorFunction().getClass() != activatorFunctions[layerIndex].getClass())
+        {
+          throw new PonderInvalidInputException("Ensemble members do not have the same activation functions!");
+        }
+      }
+    }
+
+    weights = new double[layerCount][];
+    biases = new double[layerCount][];
+    for (int layerIndex = 0; layerIndex < layerCount; layerIndex++)
+    {
+      final int width = layerWidths[layerIndex];
+      final int fanIn = getFanIn(layerIndex);
+      weights[layerIndex] = new double[memberCount * width * fanIn];
+      biases[layerIndex] = new double[memberCount * width];
+
+      for (int memberIndex = 0; memberIndex < memberCount; memberIndex++)
+      {
+        Layer layer = members.get(memberIndex).getLayers().get(layerIndex);
+        for (int neuronIndex = 0; neuronIndex < width; neuronIndex++)
+        {
+          Neuron neuron = layer.getNeurons().get(neuronIndex);
+          int row = memberIndex * width + neuronIndex;
+          biases[layerIndex][row] = neuron.getBias();
+          for (int weightIndex = 0; weightIndex < fanIn; weightIndex++)
+          {
+            weights[layerIndex][row * fanIn + weightIndex] = neuron.getWeight(weightIndex);
+          }
+        }
+      }
+    }
+  }
+
+  public int getMemberCount()
+  {
+    return memberCount;
+  }
+
+  public int getInputCount()
+  {
+    return numInputs;
+  }
+
+  public int getOutputCount()
+  {
+    return layerWidths[layerWidths.length - 1];
+  }
+
+  public Aggregation getAggregation()
+  {
+    return aggregation;
+  }
+
+  public double getVoteThreshold()
+  {
+    return voteThreshold;
+  }
+
+  /**
+   * Run one set of inputs through every member and combine their outputs.
+   *
+   * @param inputs The inputs, which must be equal in number to the inputs of the members' first layer.
+   * @return The combined outputs.
+   * @throws PonderInvalidInputException Indicates an invalid input count.
+   */
+  public double[] run(double[] inputs) throws PonderInvalidInputException
+  {
+    return runBatch(new double[][]{inputs})[0];
+  }
+
+  /**
+   * Run a batch of inputs through every member in one fused pass and combine the members' outputs for each example.
+   *
+   * @param inputs One set of inputs per example.
+   * @return The combined outputs for each example.
+   * @throws PonderInvalidInputException Indicates an invalid input count.
+   */
+  public double[][] runBatch(double[][] inputs) throws PonderInvalidInputException
+  {
+    final double[][] memberOutputs = runMembersBatch(inputs);
+    final int outputCount = getOutputCount();
+
+    double[][] results = new double[inputs.length][];
+    double[] column = new double[memberCount];
+    for (int exampleIndex = 0; exampleIndex < inputs.length; exampleIndex++)
+    {
+      final double[] fusedOutputs = memberOutputs[exampleIndex];
+      final double[] result = new double[outputCount];
+
+      if(aggregation == Aggregation.VOTE && outputCount > 1)
+      {
+        for (int memberIndex = 0; memberIndex < memberCount; memberIndex++)
+        {
+          int offset = memberIndex * outputCount;
+          int vote = 0;
+          for (int outputIndex = 1; outputIndex < outputCount; outputIndex++)
+          {
+            if(fusedOutputs[offset + outputIndex] > fusedOutputs[offset + vote])
+            {
+              vote = outputIndex;
+            }
+          }
+          result[vote] += 1.0d / memberCount;
+        }
+      }
+      else
+      {
+        for (int outputIndex = 0; outputIndex < outputCount; outputIndex++)
+        {
+          for (int memberIndex = 0; memberIndex < memberCount; memberIndex++)
+          {
+            column[memberIndex] = fusedOutputs[memberIndex * outputCount + outputIndex];
+          }
+          result[outputIndex] = aggregate(column);
+        }
+      }
+
+      results[exampleIndex] = result;
+    }
+    return results;
+  }
+
+  /**
+   * Run one set of inputs through every member without combining the outputs.
+   *
+   * @param inputs The inputs, which must be equal in number to the inputs of the members' first layer.
+   * @return The outputs of each member, indexed by [member][output].
+   * @throws PonderInvalidInputException Indicates an invalid input count.
+   */
+  public double[][] runMembers(double[] inputs) throws PonderInvalidInputException
+  {
+    final double[] fusedOutputs = runMembersBatch(new double[][]{inputs})[0];
+    final int outputCount = getOutputCount();
+
+    double[][] results = new double[memberCount][];
+    for (int memberIndex = 0; memberIndex < memberCount; memberIndex++)
+    {
+      results[memberIndex] = Arrays.copyOfRange(fusedOutputs, memberIndex * outputCount,
+          (memberIndex + 1) * outputCount);
+    }
+    return results;
+  }
+
+  /**
+   *
+   * @return The fused outputs for each example, indexed by [example][member * outputCount + output].
+   */
+  private double[][] runMembersBatch(double[][] inputs) throws PonderInvalidInputException
+  {
+    for (double[] exampleInputs : inputs)
+    {
+      if(exampleInputs.length != numInputs)
+      {
+        throw new PonderInvalidInputException("Input count for run does not match neuron count for the first layer!");
+      }
+    }
+
+    double[][] layerOutputs = inputs;
+    for (int layerIndex = 0; layerIndex < weights.length; layerIndex++)
+    {
+      layerOutputs = fireLayer(layerIndex, layerOutputs);
+    }
+    return layerOutputs;
+  }
+
+  private double[][] fireLayer(int layerIndex, double[][] inputs)
+  {
+    final int batchSize = inputs.length;
+    final int width = layerWidths[layerIndex];
+    final int fanIn = getFanIn(layerIndex);
+    final int fusedWidth = memberCount * width;
+    final double[] layerWeights = weights[layerIndex];
+    final double[] layerBiases = biases[layerIndex];
+
+    final double[][] outputs = new double[batchSize][];
+    for (int exampleIndex = 0; exampleIndex < batchSize; exampleIndex++)
+    {
+      outputs[exampleIndex] = new double[fusedWidth];
+    }
+
+    // Work through the batch in tiles small enough that a tile's inputs stay in cache while every row reads them.
+    for (int tileStart = 0; tileStart < batchSize; tileStart += EXAMPLE_TILE_SIZE)
+    {
+      final int tileEnd = Math.min(batchSize, tileStart + EXAMPLE_TILE_SIZE);
+      for (int row = 0; row < fusedWidth; row++)
+      {
+        final int rowOffset = row * fanIn;
+        // The first layer reads the shared inputs; later layers read only their own member's block.
+        final int inputOffset = layerIndex == 0 ? 0 : (row / width) * fanIn;
+        PackedLayer.fireRowInterleaved(layerWeights, rowOffset, fanIn, layerBiases[row], inputs, inputOffset,
+            outputs, row, tileStart, tileEnd);
+      }
+    }
+
+    final Activation activatorFunction = activatorFunctions[layerIndex];
+    final double[] memberBlock = activatorFunction.isLayerNormalizing() ? new double[width] : null;
+    for (double[] exampleOutputs : outputs)
+    {
+      for (int row = 0; row < fusedWidth; row++)
+      {
+        exampleOutputs[row] = activatorFunction.activate(exampleOutputs[row]);
+      }
+
+      if(memberBlock != null)
+      {
+        // Normalize each member's block on its own.
+        for (int memberIndex = 0; memberIndex < memberCount; memberIndex++)
+        {
+          System.arraycopy(exampleOutputs, memberIndex * width, memberBlock, 0, width);
+          activatorFunction.normalizeLayer(memberBlock);
+          System.arraycopy(memberBlock, 0, exampleOutputs, memberIndex * width, width);
+        }
+      }
+    }
+    return outputs;
+  }
+
+  private double aggregate(double[] values)
+  {
+    switch (aggregation)
+    {
+      case MEDIAN:
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : 0.5d * (sorted[middle - 1] + sorted[middle]);
+      case VOTE:
+        int votes = 0;
+        for (double value : values)
+        {
+          if(value >= voteThreshold)
+          {
+            votes++;
+          }
+        }
+        return (double) votes / values.length;
+      default:
+        double sum = 0d;
+        for (double value : values)
+        {
+          sum += value;
+        }
+        return sum / values.length;
+    }
+  }
+
+  /**
+   *
+   * @return The number of inputs to the given layer within one member.
+   */
+  private int getFanIn(int layerIndex)
+  {
+    return layerIndex == 0 ? numInputs : layerWidths[layerIndex - 1];
+  }
+}
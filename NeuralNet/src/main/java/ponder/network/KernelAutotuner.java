@@ -0,0 +1,373 @@
+package ponder.network;
+
+import ponder.err.PonderInvalidInputException;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Chooses how each layer of a network should run by timing candidate LayerPlans on the layer itself: each loop
+ * strategy at several tile sizes, on one thread and on up to maxThreads threads. The fastest plan wins.
+ *
+ * Plans are remembered per layer shape, batch size, thread limit and CPU, and, if a cache file is given, saved to it
+ * after each tuning, so later runs (and other networks with the same layer shapes) start already tuned. The cache
+ * file is plain CSV and may be deleted at any time to force tuning again.
+ *
+ * Only the forward pass is tuned. Training still fires through each Neuron, since back propagation keeps its state
+ * there.
+ */
+public class KernelAutotuner
+{
+  private static final String CACHE_HEADER = "Cpu,Inputs,Neurons,BatchSize,MaxThreads,Strategy,Tile,Threads";
+
+  private static final int[] ROW_TILE_SIZES = new int[]{1, 8, 32};
+  private static final int[] COLUMN_TILE_SIZES = new int[]{64, 512, Integer.MAX_VALUE};
+
+  private final String cacheFile;
+  private final ExecutorService executor;
+  private final int maxThreads;
+  private final String cpuSignature;
+
+  /**
+   * The known plans by key, in the order they were found. Loaded from the cache file on first use.
+   */
+  private final Map<String, LayerPlan> plans = new LinkedHashMap<>();
+  private boolean cacheLoaded = false;
+
+  /**
+   * Each candidate is timed for at least this long, so that small layers are measured over many runs.
+   */
+  private long measurementNanos = 5_000_000L;
+
+  private int tunedLayerCount = 0;
+  private int cachedLayerCount = 0;
+
+  /**
+   *
+   * @param cacheFile The file to load plans from and save them to, or null to keep them in memory only.
+   * @param executor The executor that parallel plans run on. It is used by every TunedNetwork this autotuner creates,
+   *                 so it must outlive them.
+   * @param maxThreads The most threads a plan may use, including the calling thread. 1 disables parallel plans.
+   */
+  public KernelAutotuner(String cacheFile, ExecutorService executor, int maxThreads)
+  {
+    this.cacheFile = cacheFile;
+    this.executor = executor;
+    this.maxThreads = executor == null ? 1 : Math.max(1, maxThreads);
+    this.cpuSignature = readCpuSignature();
+  }
+
+  /**
+   *
+   * @param measurementNanos The minimum time to spend timing each candidate plan.
+   */
+  public void setMeasurementNanos(long measurementNanos)
+  {
+    this.measurementNanos = measurementNanos;
+  }
+
+  /**
+   * Create a tuned copy of a network, timing candidate plans for any layer whose shape has not been tuned before.
+   *
+   * @param neuralNetwork The network to copy.
+   * @param batchSize The number of examples per runBatch call to tune for. Use 1 for single runs.
+   * @return The tuned copy.
+   * @throws PonderInvalidInputException Indicates an empty network, an invalid batch size, or an unreadable cache.
+   * @throws InterruptedException Indicates tuning was interrupted while timing a parallel plan.
+   */
+  public synchronized TunedNetwork tune(NeuralNetwork neuralNetwork, int batchSize)
+      throws PonderInvalidInputException, InterruptedException
+  {
+    final List<Layer> layers = neuralNetwork.getLayers();
+    if(layers.isEmpty())
+    {
+      throw new PonderInvalidInputException("Cannot tune a network with no layers!");
+    }
+    if(batchSize < 1)
+    {
+      throw new PonderInvalidInputException("Batch size must be at least 1!");
+    }
+
+    loadCache();
+
+    boolean tunedAny = false;
+    LayerPlan[] layerPlans = new LayerPlan[layers.size()];
+    for (int layerIndex = 0; layerIndex < layers.size(); layerIndex++)
+    {
+      Layer layer = layers.get(layerIndex);
+      String key = cacheKey(layer.getInputCount(), layer.getNeuronCount(), batchSize);
+      LayerPlan plan = plans.get(key);
+      if(plan == null)
+      {
+        plan = benchmark(layer, batchSize);
+        plans.put(key, plan);
+        tunedLayerCount++;
+        tunedAny = true;
+      }
+      else
+      {
+        cachedLayerCount++;
+      }
+      layerPlans[layerIndex] = plan;
+    }
+
+    if(tunedAny)
+    {
+      saveCache();
+    }
+
+    return new TunedNetwork(layers, layerPlans, executor);
+  }
+
+  /**
+   *
+   * @return The number of layers whose plan was found by timing candidates.
+   */
+  public int getTunedLayerCount()
+  {
+    return tunedLayerCount;
+  }
+
+  /**
+   *
+   * @return The number of layers whose plan was already known, from this autotuner or from the cache file.
+   */
+  public int getCachedLayerCount()
+  {
+    return cachedLayerCount;
+  }
+
+  public String getCpuSignature()
+  {
+    return cpuSignature;
+  }
+
+  private LayerPlan benchmark(Layer layer, int batchSize) throws PonderInvalidInputException, InterruptedException
+  {
+    final PackedLayer packedLayer = new PackedLayer(layer, true, true);
+    final List<LayerPlan> candidates = createCandidates(packedLayer, batchSize);
+
+    final Random rng = new Random(0L);
+    final double[][] inputs = new double[batchSize][packedLayer.numInputs];
+    for (double[] exampleInputs : inputs)
+    {
+      for (int i = 0; i < exampleInputs.length; i++)
+      {
+        exampleInputs[i] = rng.nextDouble() * 2.0d - 1.0d;
+      }
+    }
+
+    // Run every candidate once before timing any, so that the first ones timed aren't penalized for a cold JIT.
+    for (LayerPlan candidate : candidates)
+    {
+      TunedNetwork.fireLayer(packedLayer, candidate, inputs, executor);
+    }
+
+    LayerPlan bestPlan = candidates.get(0);
+    long bestNanos = Long.MAX_VALUE;
+    for (LayerPlan candidate : candidates)
+    {
+      // Take the fastest of several runs, which is the least disturbed by GC and other processes.
+      long fastestNanos = Long.MAX_VALUE;
+      long totalNanos = 0L;
+      for (int run = 0; run < 3 || totalNanos < measurementNanos; run++)
+      {
+        long startTime = System.nanoTime();
+        TunedNetwork.fireLayer(packedLayer, candidate, inputs, executor);
+        long nanos = System.nanoTime() - startTime;
+        fastestNanos = Math.min(fastestNanos, nanos);
+        totalNanos += nanos;
+      }
+
+      if(fastestNanos < bestNanos)
+      {
+        bestNanos = fastestNanos;
+        bestPlan = candidate;
+      }
+    }
+
+    return bestPlan;
+  }
+
+  private List<LayerPlan> createCandidates(PackedLayer layer, int batchSize)
+  {
+    List<Integer> threadCounts = new ArrayList<>();
+    for (int threads = 1; threads < maxThreads; threads *= 2)
+    {
+      threadCounts.add(threads);
+    }
+    threadCounts.add(maxThreads);
+
+    List<LayerPlan> candidates = new ArrayList<>();
+    for (int threads : threadCounts)
+    {
+      // Tiles larger than what they tile are all the same plan, so only the first of those is kept.
+      for (LayerPlan.Strategy strategy : new LayerPlan.Strategy[]{LayerPlan.Strategy.ROW,
+          LayerPlan.Strategy.ROW_UNROLLED, LayerPlan.Strategy.ROW_INTERLEAVED})
+      {
+        for (int tileSize : ROW_TILE_SIZES)
+        {
+          candidates.add(new LayerPlan(strategy, Math.min(tileSize, batchSize), threads));
+          if(tileSize >= batchSize)
+          {
+            break;
+          }
+        }
+      }
+      for (int tileSize : COLUMN_TILE_SIZES)
+      {
+        candidates.add(new LayerPlan(LayerPlan.Strategy.COLUMN, Math.min(tileSize, layer.numNeurons), threads));
+        if(tileSize >= layer.numNeurons)
+        {
+          break;
+        }
+      }
+    }
+    return candidates;
+  }
+
+  private String cacheKey(int numInputs, int numNeurons, int batchSize)
+  {
+    return cpuSignature + "," + numInputs + "," + numNeurons + "," + batchSize + "," + maxThreads;
+  }
+
+  private void loadCache() throws PonderInvalidInputException
+  {
+    if(cacheLoaded)
+    {
+      return;
+    }
+    cacheLoaded = true;
+
+    if(cacheFile == null || !new File(cacheFile).exists())
+    {
+      return;
+    }
+
+    try (BufferedReader br = new BufferedReader(new FileReader(cacheFile)))
+    {
+      // Skip the header.
+      String line = br.readLine();
+      while ((line = br.readLine()) != null)
+      {
+        String[] fields = line.split(",");
+        if(fields.length != 8)
+        {
+          throw new PonderInvalidInputException("Kernel plan cache row does not have 8 fields!");
+        }
+        String key = fields[0] + "," + fields[1] + "," + fields[2] + "," + fields[3] + "," + fields[4];
+        plans.put(key, new LayerPlan(LayerPlan.Strategy.valueOf(fields[5]), Integer.parseInt(fields[6]),
+            Integer.parseInt(fields[7])));
+      }
+    }
+    catch (IOException e)
+    {
+      throw new PonderInvalidInputException("Unable to read kernel plan cache file!");
+    }
+    catch (IllegalArgumentException e)
+    {
+      // NumberFormatException is an IllegalArgumentException, as is an unknown strategy name.
+      throw new PonderInvalidInputException("Kernel plan cache row cannot be interpreted!");
+    }
+  }
+
+  private void saveCache() throws PonderInvalidInputException
+  {
+    if(cacheFile == null)
+    {
+      return;
+    }
+
+    // Write the whole cache to a temporary file beside it and then rename that over the cache, so that a failed or
+    // interrupted write never leaves a truncated cache behind.
+    final Path cachePath = Paths.get(cacheFile).toAbsolutePath();
+    final Path tempPath = cachePath.resolveSibling(cachePath.getFileName() + ".tmp");
+    try
+    {
+      try (PrintWriter writer = new PrintWriter(new FileWriter(tempPath.toFile())))
+      {
+        writer.println(CACHE_HEADER);
+        for (Map.Entry<String, LayerPlan> entry : plans.entrySet())
+        {
+          LayerPlan plan = entry.getValue();
+          writer.println(entry.getKey() + "," + plan.getStrategy() + "," + plan.getTileSize() + "," +
+              plan.getThreadCount());
+        }
+        // PrintWriter never throws, so a failed write only shows up here.
+        if(writer.checkError())
+        {
+          throw new IOException("Write to " + tempPath + " failed");
+        }
+      }
+
+      try
+      {
+        Files.move(tempPath, cachePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      }
+      catch (AtomicMoveNotSupportedException e)
+      {
+        Files.move(tempPath, cachePath, StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+    catch (IOException e)
+    {
+      try
+      {
+        Files.deleteIfExists(tempPath);
+      }
+      catch (IOException ignored)
+      {
+        // The original failure is the one worth reporting.
+      }
+      throw new PonderInvalidInputException("Unable to write kernel plan cache file: " + e.getMessage() + "!");
+    }
+  }
+
+  /**
+   * Identify the CPU by its model name where the operating system reports one, plus the architecture and the number
+   * of processors available to the JVM. Commas are removed so that the signature fits in one CSV field.
+   */
+  private static String readCpuSignature()
+  {
+    String model = "unknown";
+    File cpuInfo = new File("/proc/cpuinfo");
+    if(cpuInfo.exists())
+    {
+      try (BufferedReader br = new BufferedReader(new FileReader(cpuInfo)))
+      {
+        String line;
+        while ((line = br.readLine()) != null)
+        {
+          if(line.startsWith("model name") && line.contains(":"))
+          {
+            model = line.substring(line.indexOf(':') + 1).trim();
+            break;
+          }
+        }
+      }
+      catch (IOException e)
+      {
+        // Fall back to the architecture alone.
+      }
+    }
+
+    String signature = model + " " + System.getProperty("os.arch") + " x" +
+        Runtime.getRuntime().availableProcessors();
+    return signature.replace(",", " ");
+  }
+}
@@ -2,15 +2,28 @@ package ponder.network;
 
 import ponder.activation.Activation;
 import ponder.activation.SigmoidActivation;
+import ponder.data.SparseVector;
 import ponder.err.PonderInvalidInputException;
+import ponder.init.WeightInitializer;
 
 import java.util.ArrayList;
+import java.util.Random;
 
 public class Layer
 {
   private ArrayList<Neuron> neurons = new ArrayList<>();
   private final Activation activatorFunction;
 
+  /**
+   * The activations from the most recent firing, kept for back propagation: the inputs (dense or sparse), the outputs,
+   * and each neuron's error once back propagation has calculated it. Any of these may be released to save memory,
+   * after which the layer must be fired again before its errors can be calculated or applied.
+   */
+  private double[] lastInputs;
+  private SparseVector lastSparseInputs;
+  private double[] lastOutputs;
+  private double[] errors;
+
   public Layer()
   {
     activatorFunction = new SigmoidActivation();
@@ -22,6 +35,56 @@ public class Layer
     addNeurons(numInputs, activatorFunction, numNeurons);
   }
 
+  /**
+   * Create a layer whose random initial weights are drawn from the given random number generator, so that the same
+   * seed always builds the same layer.
+   *
+   * @param numNeurons The number of neurons on this layer.
+   * @param numInputs The number of inputs expected for this layer.
+   * @param activatorFunction The activator function for every neuron on this layer.
+   * @param rng The random number generator for the initial weights.
+   * @throws PonderInvalidInputException Indicates an invalid input during Neuron creation.
+   */
+  public Layer(int numNeurons, int numInputs, Activation activatorFunction, Random rng)
+      throws PonderInvalidInputException
+  {
+    this.activatorFunction = activatorFunction;
+    addNeurons(numInputs, activatorFunction, numNeurons, rng);
+  }
+
+  /**
+   * Create a layer whose initial weights and biases are chosen by the given initializer.
+   *
+   * @param numNeurons The number of neurons on this layer.
+   * @param numInputs The number of inputs expected for this layer.
+   * @param activatorFunction The activator function for every neuron on this layer.
+   * @param initializer Chooses the initial weights and biases.
+   * @param rng The random number generator the initializer draws from.
+   * @throws PonderInvalidInputException Indicates an invalid input during Neuron creation.
+   */
+  public Layer(int numNeurons, int numInputs, Activation activatorFunction, WeightInitializer initializer, Random rng)
+      throws PonderInvalidInputException
+  {
+    if(numNeurons < 1)
+    {
+      throw new PonderInvalidInputException("Layer neuron count must be at least 1!");
+    }
+    if(numInputs < 1)
+    {
+      throw new PonderInvalidInputException("Layer input count must be at least 1!");
+    }
+
+    this.activatorFunction = activatorFunction;
+
+    double[][] weights = new double[numNeurons][numInputs];
+    double[] biases = new double[numNeurons];
+    initializer.initialize(weights, biases, rng);
+    for (int neuronIndex = 0; neuronIndex < numNeurons; neuronIndex++)
+    {
+      addNeuron(new Neuron(biases[neuronIndex], weights[neuronIndex]));
+    }
+  }
+
   public void addNeuron(Neuron newNeuron)
   {
     neurons.add(newNeuron);
@@ -44,6 +107,24 @@ public class Layer
     }
   }
 
+  /**
+   * Generate the specified number of Neurons whose random weights are drawn from the given random number generator.
+   *
+   * @param numInputs The number of inputs expected for this layer.
+   * @param activatorFunction The activator function for the new neuron.
+   * @param numNeurons The number of Neurons to add with the current parameters.
+   * @param rng The random number generator for the initial weights.
+   * @throws PonderInvalidInputException Indicates an invalid input during Neuron creation.
+   */
+  public void addNeurons(int numInputs, Activation activatorFunction, int numNeurons, Random rng)
+      throws PonderInvalidInputException
+  {
+    for(int counter = 0; counter < numNeurons; counter++)
+    {
+      addNeuron(new Neuron(numInputs, activatorFunction, rng));
+    }
+  }
+
   /**
    * Generate a Neuron with the given number of inputs and the given activation function. The weights and bias for
    * the neuron will be randomly generated.
@@ -90,6 +171,53 @@ public class Layer
       //System.out.println("Neuron fired.");
     }
 
+    normalizeOutputs(results);
+    lastInputs = inputs;
+    lastSparseInputs = null;
+    lastOutputs = results;
+    return results;
+  }
+
+  /**
+   * If this layer's activation normalizes across the layer (as softmax does), normalize the results in place, so that
+   * the recorded outputs, and therefore back propagation, see what the layer produced.
+   *
+   * @param results The output of each neuron on this layer.
+   */
+  private void normalizeOutputs(double[] results)
+  {
+    if(activatorFunction.isLayerNormalizing())
+    {
+      activatorFunction.normalizeLayer(results);
+    }
+  }
+
+  /**
+   * Fire each of the neurons in this layer against a sparse set of inputs. This is only meaningful for the first
+   * layer, since every later layer receives the dense outputs of the layer before it.
+   *
+   * @param inputs The sparse input values with which to calculate outputs.
+   * @return The array of output values.
+   * @throws PonderInvalidInputException Indicates invalid input (a null list).
+   */
+  public double[] fireLayer(SparseVector inputs) throws PonderInvalidInputException
+  {
+    if(inputs == null)
+    {
+      throw new PonderInvalidInputException("Layer input list is null!");
+    }
+
+    double[] results = new double[neurons.size()];
+
+    for (int neuronIndex = 0; neuronIndex < neurons.size(); neuronIndex++)
+    {
+      results[neuronIndex] = neurons.get(neuronIndex).fire(inputs, activatorFunction);
+    }
+
+    normalizeOutputs(results);
+    lastInputs = null;
+    lastSparseInputs = inputs;
+    lastOutputs = results;
     return results;
   }
 
@@ -111,6 +239,116 @@ public class Layer
     return neurons.get(0).getWeightCount();
   }
 
+  /**
+   *
+   * @return The output of each neuron from its most recent firing, or null if the activations were released. The
+   *         array is the layer's own record and must not be modified.
+   */
+  double[] getLastOutputs()
+  {
+    return lastOutputs;
+  }
+
+  /**
+   *
+   * @return The dense inputs of the most recent firing, or null if they were sparse or released.
+   */
+  double[] getLastInputs()
+  {
+    return lastInputs;
+  }
+
+  /**
+   *
+   * @return The number of values in the sparse inputs of the most recent firing, or 0 if there are none.
+   */
+  int getLastSparseInputSize()
+  {
+    return lastSparseInputs == null ? 0 : lastSparseInputs.getValues().length;
+  }
+
+  /**
+   *
+   * @return Whether the inputs of the most recent firing are still held.
+   */
+  boolean hasLastInputs()
+  {
+    return lastInputs != null || lastSparseInputs != null;
+  }
+
+  /**
+   *
+   * @return The array holding each neuron's error, allocated if it was released.
+   */
+  double[] getErrors()
+  {
+    if(errors == null)
+    {
+      errors = new double[neurons.size()];
+    }
+    return errors;
+  }
+
+  /**
+   *
+   * @return Whether this layer currently holds an error array.
+   */
+  boolean hasErrors()
+  {
+    return errors != null;
+  }
+
+  /**
+   * Update every neuron's weights and bias from its error and the inputs of the most recent firing.
+   *
+   * @param learningRate A small decimal multiplied by the error to prevent oscillation.
+   */
+  void applyErrors(double learningRate)
+  {
+    for (int neuronIndex = 0; neuronIndex < neurons.size(); neuronIndex++)
+    {
+      if(lastSparseInputs != null)
+      {
+        neurons.get(neuronIndex).applyError(learningRate, errors[neuronIndex], lastSparseInputs);
+      }
+      else
+      {
+        neurons.get(neuronIndex).applyError(learningRate, errors[neuronIndex], lastInputs);
+      }
+    }
+  }
+
+  /**
+   * Fire this layer again with the inputs of its most recent firing, dense or sparse, to recompute released outputs.
+   *
+   * @return The array of output values.
+   * @throws PonderInvalidInputException Indicates that the inputs were released.
+   */
+  double[] refire() throws PonderInvalidInputException
+  {
+    if(lastSparseInputs != null)
+    {
+      return fireLayer(lastSparseInputs);
+    }
+    return fireLayer(lastInputs);
+  }
+
+  /**
+   * Drop this layer's references to its activations, so that they can be garbage collected.
+   *
+   * @param keepInputs Whether to keep the inputs, as a checkpoint from which the layer can be fired again.
+   */
+  void releaseActivations(boolean keepInputs)
+  {
+    if(!keepInputs)
+    {
+      lastInputs = null;
+      lastSparseInputs = null;
+    }
+    lastOutputs = null;
+    errors = null;
+  }
+
   public Activation getActivatorFunction()
   {
     return activatorFunction;
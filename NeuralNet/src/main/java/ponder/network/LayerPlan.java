@@ -0,0 +1,76 @@
+package ponder.network;
+
+/**
+ * How one layer of a TunedNetwork computes its weighted sums: which loop strategy, what tile size, and how many threads.
+ * KernelAutotuner picks a plan for each layer shape by timing the candidates.
+ */
+public final class LayerPlan
+{
+  public enum Strategy
+  {
+    /**
+     * One dot product per neuron and example, over the neuron's row of weights. Gives exactly the same results as
+     * NeuralNetwork.run. The tile is the number of examples that reuse a row of weights while it is in cache.
+     */
+    ROW,
+
+    /**
+     * As ROW, but each dot product keeps four independent partial sums so that consecutive multiply-adds don't wait on
+     * each other. Adding the partial sums in a different order can change the last bits of the result.
+     */
+    ROW_UNROLLED,
+
+    /**
+     * As ROW, but four examples at a time walk each row of weights together, so each weight is loaded once for four
+     * multiply-adds and the four sums don't wait on each other. Each sum still accumulates in ROW order, so results are
+     * identical. The tile is as for ROW.
+     */
+    ROW_INTERLEAVED,
+
+    /**
+     * For each input, add its value times its column of weights to every neuron's sum at once. The inner loop runs over
+     * contiguous neurons, so the JIT compiler can use vector instructions for it. Sums are accumulated in the same
+     * order as ROW, so results are identical. The tile is the number of neurons whose sums are kept in cache together.
+     */
+    COLUMN
+  }
+
+  private final Strategy strategy;
+  private final int tileSize;
+  private final int threadCount;
+
+  /**
+   *
+   * @param strategy The loop strategy.
+   * @param tileSize The tile size for the strategy. Always at least 1.
+   * @param threadCount The number of threads the batch (or, for a batch smaller than that, the neurons) is split
+   *                    across. Always at least 1.
+   */
+  public LayerPlan(Strategy strategy, int tileSize, int threadCount)
+  {
+    this.strategy = strategy;
+    this.tileSize = Math.max(1, tileSize);
+    this.threadCount = Math.max(1, threadCount);
+  }
+
+  public Strategy getStrategy()
+  {
+    return strategy;
+  }
+
+  public int getTileSize()
+  {
+    return tileSize;
+  }
+
+  public int getThreadCount()
+  {
+    return threadCount;
+  }
+
+  @Override
+  public String toString()
+  {
+    return strategy + " (tile " + tileSize + ", " + threadCount + " thread(s))";
+  }
+}
@@ -0,0 +1,342 @@
+package ponder.network;
+
+import ponder.activation.Activation;
+import ponder.activation.LinearActivation;
+import ponder.activation.SigmoidActivation;
+import ponder.activation.TanHActivation;
+import ponder.err.PonderInvalidInputException;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compiles a trained NeuralNetwork into a hidden class with one straight-line run method.
+ *
+ * For small, fixed networks the interpreted path costs more than the arithmetic: iterating the layer list, calling
+ * each Neuron, dispatching through the Activation interface and allocating an array per layer. The generated class
+ * instead has every loop unrolled, every weight and bias baked in as a constant, and the known activation functions
+ * inlined, so the JIT sees a single small method it can optimize as a whole. Any other activation function is called
+ * through its interface, and layer-normalizing activations such as softmax through normalizeLayer.
+ *
+ * Java source is generated and compiled in memory with the system Java compiler, then defined as a hidden class, which
+ * is unloaded once the returned model is unreachable. This requires running on a JDK rather than a bare JRE.
+ *
+ * The generated arithmetic matches Neuron.fire term for term, so compiled outputs are identical to NeuralNetwork.run.
+ * The one exception is that weights which are exactly zero are left out entirely, which only matters for non-finite
+ * inputs.
+ */
+public class NetworkCompiler
+{
+  /**
+   * The largest network (in weights and biases) that will be compiled. Fully unrolled, a network this size is already
+   * near the bytecode size the JIT compiler will accept, and bigger networks gain little from unrolling anyway.
+   */
+  public static final int MAX_PARAMETERS = 1000;
+
+  /**
+   * HotSpot never JIT-compiles a method with more bytes of bytecode than this (its HugeMethodLimit), so a larger run
+   * method would be interpreted forever and run far slower than NeuralNetwork.run. Since the bytes per parameter
+   * depend on the network's shape, the size of the run method is estimated as it is generated and checked as well.
+   */
+  private static final int HUGE_METHOD_LIMIT = 8000;
+
+  /**
+   * Conservative bytecode sizes of the fixed parts of the run method: the input count check, one activation of z
+   * (the generic call through the activations array, without its index, is the largest), and one normalizeLayer call
+   * (without its index and array loads).
+   */
+  private static final int INPUT_CHECK_BYTES = 20;
+  private static final int ACTIVATION_BYTES = 16;
+  private static final int NORMALIZE_CALL_BYTES = 10;
+
+  private static final String GENERATED_CLASS_NAME = "GeneratedNetwork";
+
+  /**
+   * Compile the current weights of a network. Later training of the network does not affect the compiled model.
+   *
+   * @param neuralNetwork The network to compile.
+   * @return The compiled model.
+   * @throws PonderInvalidInputException Indicates a network that is too large, or could not be compiled.
+   */
+  public static CompiledModel compile(NeuralNetwork neuralNetwork) throws PonderInvalidInputException
+  {
+    if(neuralNetwork.getParameterCount() > MAX_PARAMETERS)
+    {
+      throw new PonderInvalidInputException("Network has too many parameters to compile!");
+    }
+
+    final List<Layer> layers = neuralNetwork.getLayers();
+    byte[] classBytes = compileSource(generateSource(layers));
+
+    Activation[] activations = new Activation[layers.size()];
+    for (int layerIndex = 0; layerIndex < layers.size(); layerIndex++)
+    {
+      activations[layerIndex] = layers.get(layerIndex).getActivatorFunction();
+    }
+
+    try
+    {
+      MethodHandles.Lookup generatedLookup = MethodHandles.lookup().defineHiddenClass(classBytes, true);
+      return (CompiledModel) generatedLookup.findConstructor(generatedLookup.lookupClass(),
+          MethodType.methodType(void.class, Activation[].class)).invoke(activations);
+    }
+    catch (Throwable e)
+    {
+      throw new PonderInvalidInputException("Unable to load compiled network: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Generate the Java source for a network. Visible for inspection and debugging of the generated code.
+   *
+   * @param layers The layers of the network to compile.
+   * @return The source of a class implementing CompiledModel, with a constructor taking each layer's activation.
+   * @throws PonderInvalidInputException Indicates a run method too large for the JIT compiler.
+   */
+  static String generateSource(List<Layer> layers) throws PonderInvalidInputException
+  {
+    StringBuilder source = new StringBuilder();
+    source.append("package ponder.network;\n\n");
+    source.append("final class ").append(GENERATED_CLASS_NAME).append(" implements CompiledModel\n{\n");
+    source.append("  private final ponder.activation.Activation[] activations;\n\n");
+    source.append("  ").append(GENERATED_CLASS_NAME).append("(ponder.activation.Activation[] activations)\n  {\n");
+    source.append("    this.activations = activations;\n  }\n\n");
+    source.append("  public double[] run(double[] inputs) throws ponder.err.PonderInvalidInputException\n  {\n");
+
+    // Running estimate of the run method's bytecode size. Locals are numbered in declaration order, as javac does:
+    // this is 0, inputs is 1, and every double takes two slots.
+    int estimatedBytes = INPUT_CHECK_BYTES;
+    int nextSlot = 2;
+
+    final int inputCount = layers.get(0).getInputCount();
+    source.append("    if(inputs.length != ").append(inputCount).append(")\n    {\n");
+    source.append("      throw new ponder.err.PonderInvalidInputException(")
+        .append("\"Input count for run does not match neuron count for the first layer!\");\n    }\n");
+
+    // Load each input into a local once, so that later layers never touch the array.
+    String[] previousOutputs = new String[inputCount];
+    int[] previousSlots = new int[inputCount];
+    for (int inputIndex = 0; inputIndex < inputCount; inputIndex++)
+    {
+      previousOutputs[inputIndex] = "x" + inputIndex;
+      previousSlots[inputIndex] = nextSlot;
+      nextSlot += 2;
+      source.append("    final double x").append(inputIndex).append(" = inputs[").append(inputIndex).append("];\n");
+      estimatedBytes += 2 + constantBytes(inputIndex) + localBytes(previousSlots[inputIndex]);
+    }
+    source.append("    double z;\n");
+    final int zSlot = nextSlot;
+    nextSlot += 2;
+
+    for (int layerIndex = 0; layerIndex < layers.size(); layerIndex++)
+    {
+      Layer layer = layers.get(layerIndex);
+      Activation activatorFunction = layer.getActivatorFunction();
+      String[] outputs = new String[layer.getNeuronCount()];
+      int[] outputSlots = new int[layer.getNeuronCount()];
+
+      for (int neuronIndex = 0; neuronIndex < layer.getNeuronCount(); neuronIndex++)
+      {
+        Neuron neuron = layer.getNeurons().get(neuronIndex);
+
+        // Same order of operations as Neuron.fire: start from the bias, then add each weighted input in turn.
+        source.append("    z = ").append(literal(neuron.getBias()));
+        estimatedBytes += literalBytes(neuron.getBias()) + localBytes(zSlot);
+        for (int weightIndex = 0; weightIndex < neuron.getWeightCount(); weightIndex++)
+        {
+          double weight = neuron.getWeight(weightIndex);
+          if(weight != 0d)
+          {
+            source.append(" + ").append(literal(weight)).append(" * ").append(previousOutputs[weightIndex]);
+            estimatedBytes += literalBytes(weight) + localBytes(previousSlots[weightIndex]) + 2;
+          }
+        }
+        source.append(";\n");
+
+        outputs[neuronIndex] = "a" + layerIndex + "_" + neuronIndex;
+        outputSlots[neuronIndex] = nextSlot;
+        nextSlot += 2;
+        source.append("    final double ").append(outputs[neuronIndex]).append(" = ")
+            .append(inlineActivation(activatorFunction, layerIndex)).append(";\n");
+        estimatedBytes += ACTIVATION_BYTES + constantBytes(layerIndex) + localBytes(zSlot) +
+            localBytes(outputSlots[neuronIndex]);
+      }
+
+      if(activatorFunction.isLayerNormalizing())
+      {
+        // Gather the layer into an array, normalize it through the activation, and read the results back.
+        final String array = "n" + layerIndex;
+        final int arraySlot = nextSlot++;
+        source.append("    final double[] ").append(array).append(" = new double[]{")
+            .append(String.join(", ", outputs)).append("};\n");
+        source.append("    activations[").append(layerIndex).append("].normalizeLayer(").append(array).append(");\n");
+        estimatedBytes += constantBytes(outputs.length) + 2 + localBytes(arraySlot) + NORMALIZE_CALL_BYTES +
+            constantBytes(layerIndex) + localBytes(arraySlot);
+
+        for (int neuronIndex = 0; neuronIndex < outputs.length; neuronIndex++)
+        {
+          int normalizedSlot = nextSlot;
+          nextSlot += 2;
+          estimatedBytes += 2 + constantBytes(neuronIndex) + localBytes(outputSlots[neuronIndex]);
+          estimatedBytes += localBytes(arraySlot) + constantBytes(neuronIndex) + 1 + localBytes(normalizedSlot);
+
+          String normalized = "b" + layerIndex + "_" + neuronIndex;
+          source.append("    final double ").append(normalized).append(" = ").append(array).append("[")
+              .append(neuronIndex).append("];\n");
+          outputs[neuronIndex] = normalized;
+          outputSlots[neuronIndex] = normalizedSlot;
+        }
+      }
+
+      previousOutputs = outputs;
+      previousSlots = outputSlots;
+    }
+
+    source.append("    return new double[]{").append(String.join(", ", previousOutputs)).append("};\n");
+    source.append("  }\n}\n");
+    estimatedBytes += constantBytes(previousOutputs.length) + 3;
+    for (int outputIndex = 0; outputIndex < previousOutputs.length; outputIndex++)
+    {
+      estimatedBytes += 2 + constantBytes(outputIndex) + localBytes(previousSlots[outputIndex]);
+    }
+
+    if(estimatedBytes > HUGE_METHOD_LIMIT)
+    {
+      throw new PonderInvalidInputException("Network is too large to compile into a single method!");
+    }
+    return source.toString();
+  }
+
+  /**
+   * Write the activation function of z as an expression. The known activation classes are inlined using exactly their
+   * own arithmetic; anything else, including subclasses of them, is called through the layer's Activation.
+   */
+  private static String inlineActivation(Activation activatorFunction, int layerIndex)
+  {
+    if(activatorFunction.getClass() == SigmoidActivation.class)
+    {
+      return "1.0 / (1.0 + Math.exp(-z))";
+    }
+    if(activatorFunction.getClass() == TanHActivation.class)
+    {
+      return "(2.0 / (1.0 + Math.exp(-2.0 * z))) - 1.0";
+    }
+    if(activatorFunction.getClass() == LinearActivation.class)
+    {
+      return "z / 10.0d";
+    }
+
+    return "activations[" + layerIndex + "].activate(z)";
+  }
+
+  /**
+   *
+   * @return The bytes of the instruction that loads or stores a double local in the given slot.
+   */
+  private static int localBytes(int slot)
+  {
+    if(slot <= 3)
+    {
+      return 1;
+    }
+    return slot <= 255 ? 2 : 4;
+  }
+
+  /**
+   *
+   * @return The bytes of the instruction that pushes an int constant, such as an array index.
+   */
+  private static int constantBytes(int value)
+  {
+    if(value <= 5)
+    {
+      return 1;
+    }
+    return value <= 127 ? 2 : 3;
+  }
+
+  /**
+   *
+   * @return The bytes of the expression written by literal for the value.
+   */
+  private static int literalBytes(double value)
+  {
+    return Double.isFinite(value) ? 3 : 6;
+  }
+
+  private static String literal(double value)
+  {
+    if(Double.isFinite(value))
+    {
+      // Double.toString produces the shortest string that parses back to exactly the same double.
+      return Double.toString(value) + "d";
+    }
+    return "Double.longBitsToDouble(" + Double.doubleToRawLongBits(value) + "L)";
+  }
+
+  private static byte[] compileSource(String source) throws PonderInvalidInputException
+  {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    if(compiler == null)
+    {
+      throw new PonderInvalidInputException("No Java compiler is available; compiling networks requires a JDK!");
+    }
+
+    final ByteArrayOutputStream classBytes = new ByteArrayOutputStream();
+
+    JavaFileObject sourceFile = new SimpleJavaFileObject(
+        URI.create("string:///ponder/network/" + GENERATED_CLASS_NAME + ".java"), JavaFileObject.Kind.SOURCE)
+    {
+      @Override
+      public CharSequence getCharContent(boolean ignoreEncodingErrors)
+      {
+        return source;
+      }
+    };
+
+    StandardJavaFileManager standardFileManager = compiler.getStandardFileManager(null, null, null);
+    JavaFileManager fileManager = new ForwardingJavaFileManager<StandardJavaFileManager>(standardFileManager)
+    {
+      @Override
+      public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+                                                 FileObject sibling)
+      {
+        // Keep the class file in memory instead of writing it to disk.
+        return new SimpleJavaFileObject(URI.create("bytes:///" + className.replace('.', '/') + kind.extension), kind)
+        {
+          @Override
+          public OutputStream openOutputStream()
+          {
+            return classBytes;
+          }
+        };
+      }
+    };
+
+    StringWriter diagnostics = new StringWriter();
+    List<String> options = Arrays.asList("-g:none", "-classpath", System.getProperty("java.class.path"));
+    Boolean succeeded = compiler.getTask(diagnostics, fileManager, null, options, null,
+        List.of(sourceFile)).call();
+
+    if(!Boolean.TRUE.equals(succeeded))
+    {
+      throw new PonderInvalidInputException("Unable to compile network: " + diagnostics);
+    }
+
+    return classBytes.toByteArray();
+  }
+}
@@ -0,0 +1,112 @@
+package ponder.network;
+
+import ponder.err.PonderInvalidInputException;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Magnitude pruning for trained networks. Weights whose absolute value falls below a threshold are set to exactly
+ * zero; PrunedNetwork can then compact the network so that inference skips those weights entirely.
+ *
+ * Pruning a trained network usually costs a little accuracy. pruneAndFineTune recovers most of it by training for a
+ * few more epochs while holding the pruned weights at zero.
+ */
+public class NetworkPruner
+{
+  /**
+   * Zero every weight whose magnitude is below the threshold. Biases are never pruned.
+   *
+   * @param neuralNetwork The network to prune in place.
+   * @param threshold The magnitude below which a weight is removed.
+   * @return The number of weights that are zero after pruning.
+   */
+  public static int prune(NeuralNetwork neuralNetwork, double threshold)
+  {
+    int zeroCount = 0;
+    neuralNetwork.beginParameterChange();
+    for (Layer layer : neuralNetwork.getLayers())
+    {
+      for (Neuron neuron : layer.getNeurons())
+      {
+        for (int weightIndex = 0; weightIndex < neuron.getWeightCount(); weightIndex++)
+        {
+          if(Math.abs(neuron.getWeight(weightIndex)) < threshold)
+          {
+            neuron.setWeight(weightIndex, 0d);
+          }
+          if(neuron.getWeight(weightIndex) == 0d)
+          {
+            zeroCount++;
+          }
+        }
+      }
+    }
+
+    neuralNetwork.endParameterChange();
+    return zeroCount;
+  }
+
+  /**
+   * Prune the network, then fine-tune it with the given trainer. Weights removed by pruning are reset to zero after
+   * every training step, so they stay pruned.
+   *
+   * @param neuralNetwork The network to prune in place. Must be the network the trainer trains.
+   * @param trainer A trainer with its training data already set.
+   * @param threshold The magnitude below which a weight is removed.
+   * @param fineTuneEpochs The number of training steps after pruning.
+   * @return The number of weights that are zero after pruning.
+   * @throws PonderInvalidInputException Indicates a failure while fine-tuning.
+   */
+  public static int pruneAndFineTune(NeuralNetwork neuralNetwork, NetworkTrainer trainer, double threshold,
+                                     int fineTuneEpochs) throws PonderInvalidInputException
+  {
+    int zeroCount = prune(neuralNetwork, threshold);
+
+    // Remember where the zeros are as [layer][neuron] lists of weight indices, so that each re-zeroing pass only
+    // touches pruned weights.
+    final List<Layer> layers = neuralNetwork.getLayers();
+    int[][][] prunedIndices = new int[layers.size()][][];
+    for (int layerIndex = 0; layerIndex < layers.size(); layerIndex++)
+    {
+      Layer layer = layers.get(layerIndex);
+      prunedIndices[layerIndex] = new int[layer.getNeuronCount()][];
+      for (int neuronIndex = 0; neuronIndex < layer.getNeuronCount(); neuronIndex++)
+      {
+        Neuron neuron = layer.getNeurons().get(neuronIndex);
+        int[] indices = new int[neuron.getWeightCount()];
+        int count = 0;
+        for (int weightIndex = 0; weightIndex < neuron.getWeightCount(); weightIndex++)
+        {
+          if(neuron.getWeight(weightIndex) == 0d)
+          {
+            indices[count++] = weightIndex;
+          }
+        }
+        prunedIndices[layerIndex][neuronIndex] = Arrays.copyOf(indices, count);
+      }
+    }
+
+    for (int epoch = 0; epoch < fineTuneEpochs; epoch++)
+    {
+      trainer.runOnce();
+
+      neuralNetwork.beginParameterChange();
+      for (int layerIndex = 0; layerIndex < layers.size(); layerIndex++)
+      {
+        Layer layer = layers.get(layerIndex);
+        for (int neuronIndex = 0; neuronIndex < layer.getNeuronCount(); neuronIndex++)
+        {
+          Neuron neuron = layer.getNeurons().get(neuronIndex);
+          for (int weightIndex : prunedIndices[layerIndex][neuronIndex])
+          {
+            neuron.setWeight(weightIndex, 0d);
+          }
+        }
+      }
+      neuralNetwork.endParameterChange();
+    }
+
+    return zeroCount;
+  }
+}
@@ -0,0 +1,119 @@
+package ponder.network;
+
+import ponder.activation.Activation;
+import ponder.err.PonderInvalidInputException;
+
+import java.util.List;
+
+/**
+ * An immutable copy of a NeuralNetwork's weights, biases and activations. A snapshot keeps no per-run state, so any
+ * number of threads may call run at once, and it never changes once created, even while the network it was taken from
+ * continues to train.
+ */
+public class NetworkSnapshot
+{
+  private final long version;
+
+  /**
+   * Weights for each layer, indexed by [layer][neuron][input].
+   */
+  private final double[][][] weights;
+
+  /**
+   * Biases for each layer, indexed by [layer][neuron].
+   */
+  private final double[][] biases;
+  private final Activation[] activatorFunctions;
+
+  NetworkSnapshot(List<Layer> layers, long version)
+  {
+    this.version = version;
+
+    weights = new double[layers.size()][][];
+    biases = new double[layers.size()][];
+    activatorFunctions = new Activation[layers.size()];
+
+    for (int layerIndex = 0; layerIndex < layers.size(); layerIndex++)
+    {
+      Layer layer = layers.get(layerIndex);
+      activatorFunctions[layerIndex] = layer.getActivatorFunction();
+      weights[layerIndex] = new double[layer.getNeuronCount()][];
+      biases[layerIndex] = new double[layer.getNeuronCount()];
+
+      for (int neuronIndex = 0; neuronIndex < layer.getNeuronCount(); neuronIndex++)
+      {
+        Neuron neuron = layer.getNeurons().get(neuronIndex);
+        weights[layerIndex][neuronIndex] = new double[neuron.getWeightCount()];
+        for (int weightIndex = 0; weightIndex < neuron.getWeightCount(); weightIndex++)
+        {
+          weights[layerIndex][neuronIndex][weightIndex] = neuron.getWeight(weightIndex);
+        }
+        biases[layerIndex][neuronIndex] = neuron.getBias();
+      }
+    }
+  }
+
+  /**
+   *
+   * @return A number identifying this snapshot. Later snapshots from the same source have larger versions.
+   */
+  public long getVersion()
+  {
+    return version;
+  }
+
+  public int getInputCount()
+  {
+    return weights[0][0].length;
+  }
+
+  public int getOutputCount()
+  {
+    return biases[biases.length - 1].length;
+  }
+
+  /**
+   * Run one set of features through the snapshot. The results match NeuralNetwork.run for the weights at the time the
+   * snapshot was taken.
+   *
+   * @param inputs One set of features.
+   * @return The outputs from the run.
+   * @throws PonderInvalidInputException Indicates an incorrect input feature count.
+   */
+  public double[] run(double[] inputs) throws PonderInvalidInputException
+  {
+    if(inputs.length != getInputCount())
+    {
+      throw new PonderInvalidInputException("Input count for run does not match neuron count for the first layer!");
+    }
+
+    double[] layerOutputs = inputs;
+
+    for (int layerIndex = 0; layerIndex < weights.length; layerIndex++)
+    {
+      final double[][] layerWeights = weights[layerIndex];
+      final double[] layerBiases = biases[layerIndex];
+      final Activation activatorFunction = activatorFunctions[layerIndex];
+
+      double[] results = new double[layerWeights.length];
+      for (int neuronIndex = 0; neuronIndex < layerWeights.length; neuronIndex++)
+      {
+        final double[] neuronWeights = layerWeights[neuronIndex];
+        double result = layerBiases[neuronIndex];
+        for (int i = 0; i < neuronWeights.length; i++)
+        {
+          result += neuronWeights[i] * layerOutputs[i];
+        }
+        results[neuronIndex] = activatorFunction.activate(result);
+      }
+      if(activatorFunction.isLayerNormalizing())
+      {
+        activatorFunction.normalizeLayer(results);
+      }
+
+      layerOutputs = results;
+    }
+
+    return layerOutputs;
+  }
+}
@@ -1,6 +1,11 @@
 package ponder.network;
 
+import ponder.data.OffHeapMatrix;
+import ponder.data.SparseInputSet;
+import ponder.data.SparseVector;
 import ponder.err.PonderInvalidInputException;
+import ponder.schedule.ConstantSchedule;
+import ponder.schedule.LearningRateSchedule;
 
 import java.util.*;
 
@@ -16,6 +21,13 @@ public class NetworkTrainer
 
   private double learningRate = 0.3d;
 
+  /**
+   * Scales the learning rate for each training step. The step count is the number of runOnce calls since the schedule
+   * was set.
+   */
+  private LearningRateSchedule learningRateSchedule = new ConstantSchedule();
+  private long stepCount = 0L;
+
   /**
    * Random number generator for selecting data during training runs.
    */
@@ -27,6 +39,22 @@ public class NetworkTrainer
    */
   private double[][] trainingData = null;
 
+  /**
+   * Sparse training inputs, already reduced to the input features in network order. Only one of trainingData and
+   * sparseTrainingInputs is set at a time.
+   */
+  private SparseVector[] sparseTrainingInputs = null;
+  private double[] sparseTrainingTargets = null;
+
+  /**
+   * Off-heap training data, with the column of each input feature (in network order) and of the target resolved up
+   * front. A single row buffer is reused to pull each selected row onto the heap.
+   */
+  private OffHeapMatrix offHeapTrainingData = null;
+  private int[] offHeapInputColumns = null;
+  private int offHeapTargetColumn = -1;
+  private double[] offHeapRowBuffer = null;
+
   private final NeuralNetwork neuralNetwork;
 
   public NetworkTrainer(NeuralNetwork neuralNetwork, List<String> inputFeatures, String target)
@@ -36,6 +64,57 @@ public class NetworkTrainer
     this.target = target;
   }
 
+  public double getLearningRate()
+  {
+    return learningRate;
+  }
+
+  public void setLearningRate(double learningRate)
+  {
+    this.learningRate = learningRate;
+  }
+
+  /**
+   * Set how the learning rate varies over training. Each schedule is applied to the base learning rate, counting steps
+   * from the call to this method.
+   *
+   * @param learningRateSchedule The schedule to follow.
+   * @throws PonderInvalidInputException Indicates a null schedule.
+   */
+  public void setLearningRateSchedule(LearningRateSchedule learningRateSchedule) throws PonderInvalidInputException
+  {
+    if(learningRateSchedule == null)
+    {
+      throw new PonderInvalidInputException("Learning rate schedule is null!");
+    }
+    this.learningRateSchedule = learningRateSchedule;
+    this.stepCount = 0L;
+  }
+
+  public LearningRateSchedule getLearningRateSchedule()
+  {
+    return learningRateSchedule;
+  }
+
+  /**
+   *
+   * @return The number of training steps taken since the learning rate schedule was set.
+   */
+  public long getStepCount()
+  {
+    return stepCount;
+  }
+
+  /**
+   * Seed the random number generator which selects training data, so that a training run can be reproduced.
+   *
+   * @param seed The seed for the training data selection.
+   */
+  public void setSeed(long seed)
+  {
+    rng = new Random(seed);
+  }
+
   /**
    * Set the input data. The order of the feature names must match the order of the training data.
    *
@@ -63,6 +142,58 @@ public class NetworkTrainer
     }
 
     this.trainingData = trainingData;
+    this.sparseTrainingInputs = null;
+    this.sparseTrainingTargets = null;
+    this.offHeapTrainingData = null;
+  }
+
+  /**
+   * Set off-heap input data. The matrix is read in place and is not copied, so it must stay open for as long as this
+   * trainer uses it.
+   *
+   * @param featureNames The names of each feature. Features must be in the same order as the matrix columns.
+   * @param trainingData The input data for training the network, one row per training example.
+   */
+  public void setTrainingData(String[] featureNames, OffHeapMatrix trainingData) throws PonderInvalidInputException
+  {
+    if(trainingData.getColumnCount() != featureNames.length)
+    {
+      throw new PonderInvalidInputException("Training data is not a consistent shape!");
+    }
+
+    features.clear();
+    for (int featureNum = 0, featureNamesLength = featureNames.length; featureNum < featureNamesLength; featureNum++)
+    {
+      features.put(featureNames[featureNum], featureNum);
+    }
+
+    offHeapInputColumns = new int[inputFeatures.size()];
+    for (int i = 0; i < inputFeatures.size(); i++)
+    {
+      offHeapInputColumns[i] = findFeatureColumn(inputFeatures.get(i));
+    }
+    offHeapTargetColumn = findFeatureColumn(target);
+    offHeapRowBuffer = new double[featureNames.length];
+
+    this.offHeapTrainingData = trainingData;
+    this.trainingData = null;
+    this.sparseTrainingInputs = null;
+    this.sparseTrainingTargets = null;
+  }
+
+  /**
+   * Set sparse input data. The input features and target are looked up by name in the sparse input set, so the
+   * reduction to network order happens once here rather than on every training run.
+   *
+   * @param sparseInputSet The sparse input data for training the network.
+   */
+  public void setTrainingData(SparseInputSet sparseInputSet) throws PonderInvalidInputException
+  {
+    this.sparseTrainingInputs = sparseInputSet.getInputFeatures(inputFeatures.toArray(new String[0]));
+    this.sparseTrainingTargets = sparseInputSet.getFeatureColumn(target);
+    this.trainingData = null;
+    this.offHeapTrainingData = null;
+    features.clear();
   }
 
   /**
@@ -70,6 +201,32 @@ public class NetworkTrainer
    */
   public void runOnce() throws PonderInvalidInputException
   {
+    final double stepLearningRate = learningRateSchedule.getLearningRate(learningRate, stepCount++);
+
+    if(sparseTrainingInputs != null)
+    {
+      int trainingDataIndex = rng.nextInt(sparseTrainingInputs.length);
+      neuralNetwork.run(sparseTrainingInputs[trainingDataIndex]);
+      neuralNetwork.backPropagate(stepLearningRate, new double[]{sparseTrainingTargets[trainingDataIndex]});
+      return;
+    }
+
+    if(offHeapTrainingData != null)
+    {
+      int trainingDataIndex = rng.nextInt(offHeapTrainingData.getRowCount());
+      offHeapTrainingData.copyRow(trainingDataIndex, offHeapRowBuffer);
+
+      double[] mappedInputFeatures = new double[offHeapInputColumns.length];
+      for (int i = 0; i < offHeapInputColumns.length; i++)
+      {
+        mappedInputFeatures[i] = offHeapRowBuffer[offHeapInputColumns[i]];
+      }
+
+      neuralNetwork.run(mappedInputFeatures);
+      neuralNetwork.backPropagate(stepLearningRate, new double[]{offHeapRowBuffer[offHeapTargetColumn]});
+      return;
+    }
+
     // TODO: Do this reduction before we start doing any training.
     int trainingDataIndex = rng.nextInt(trainingData.length);
     double[] mappedInputFeatures = new double[inputFeatures.size()];
@@ -85,6 +242,17 @@ public class NetworkTrainer
     double expectedValue = trainingData[trainingDataIndex][features.get(target)];
 
     // Calculate the error for our target based on all output nodes.
-    neuralNetwork.backPropagate(learningRate, new double[]{expectedValue});
+    neuralNetwork.backPropagate(stepLearningRate, new double[]{expectedValue});
+  }
+
+  private int findFeatureColumn(String featureName) throws PonderInvalidInputException
+  {
+    Integer column = features.get(featureName);
+    if(column == null)
+    {
+      throw new PonderInvalidInputException("Requested feature [" + featureName +
+          "] was not found in the training data!");
+    }
+    return column;
   }
 }
@@ -1,14 +1,48 @@
 package ponder.network;
 
 import ponder.activation.Activation;
+import ponder.data.FeatureStatistics;
+import ponder.data.OffHeapMatrix;
+import ponder.data.SparseVector;
 import ponder.err.PonderInvalidInputException;
+import ponder.init.WeightInitializer;
+import ponder.loss.Loss;
+import ponder.loss.MeanSquaredErrorLoss;
 
+import java.lang.invoke.VarHandle;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 
 public class NeuralNetwork
 {
   private ArrayList<Layer> layers = new ArrayList<>();
 
+  /**
+   * Incremented before and after every change to the weights or biases, so that anything derived from them
+   * (snapshots, cached outputs) can tell when it is stale. The version is odd while a change is in progress, which lets
+   * a reader on another thread detect a copy that saw only part of an update.
+   */
+  private volatile long parameterVersion = 0L;
+
+  /**
+   * Measures the output error and supplies the output layer's errors during back propagation.
+   */
+  private Loss loss = new MeanSquaredErrorLoss();
+
+  /**
+   * When greater than 1, the layers are split into segments of this many layers, counted down from the output layer so
+   * that only the first segment may be shorter. After a run, only the first layer of each segment keeps its inputs, as
+   * the segment's checkpoint, and the last segment keeps all of its activations. The other segments are fired again
+   * from their checkpoints during back propagation.
+   */
+  private int checkpointInterval = 1;
+
+  private long retainedDoubles = 0L;
+  private long peakRetainedDoubles = 0L;
+  private long forwardLayerCount = 0L;
+  private long recomputedLayerCount = 0L;
+
   /**
    *
    * @param numNeurons The number of neurons in this layer.
@@ -18,6 +52,46 @@ public class NeuralNetwork
    * @throws PonderInvalidInputException Indicates invalid inputs.
    */
   public void addLayer(int numNeurons, int numInputs, Activation activatorFunction) throws PonderInvalidInputException
+  {
+    addLayer(numNeurons, numInputs, activatorFunction, new Random());
+  }
+
+  /**
+   *
+   * @param numNeurons The number of neurons in this layer.
+   * @param numInputs The number of inputs for this layer. This should match either the number of features or the
+   *                  number of outputs from the previous layer.
+   * @param activatorFunction The activator function to be used for all neurons on this layer.
+   * @param rng The random number generator for the initial weights. Pass a seeded generator for reproducible runs.
+   * @throws PonderInvalidInputException Indicates invalid inputs.
+   */
+  public void addLayer(int numNeurons, int numInputs, Activation activatorFunction, Random rng)
+      throws PonderInvalidInputException
+  {
+    addLayer(new Layer(numNeurons, numInputs, activatorFunction, rng), numInputs);
+  }
+
+  /**
+   *
+   * @param numNeurons The number of neurons in this layer.
+   * @param numInputs The number of inputs for this layer. This should match either the number of features or the
+   *                  number of outputs from the previous layer.
+   * @param activatorFunction The activator function to be used for all neurons on this layer.
+   * @param initializer Chooses the initial weights and biases, e.g. XavierInitializer for tanh or sigmoid layers.
+   * @param rng The random number generator for the initial weights. Pass a seeded generator for reproducible runs.
+   * @throws PonderInvalidInputException Indicates invalid inputs.
+   */
+  public void addLayer(int numNeurons, int numInputs, Activation activatorFunction, WeightInitializer initializer,
+                       Random rng) throws PonderInvalidInputException
+  {
+    if(initializer == null)
+    {
+      throw new PonderInvalidInputException("Weight initializer is null!");
+    }
+    addLayer(new Layer(numNeurons, numInputs, activatorFunction, initializer, rng), numInputs);
+  }
+
+  private void addLayer(Layer layer, int numInputs) throws PonderInvalidInputException
   {
     if(!layers.isEmpty())
     {
@@ -28,7 +102,157 @@ public class NeuralNetwork
       }
     }
 
-    layers.add(new Layer(numNeurons, numInputs, activatorFunction, activatorFunction));
+    beginParameterChange();
+    layers.add(layer);
+    endParameterChange();
+  }
+
+  /**
+   * Set the loss function that back propagation minimizes. The default is MeanSquaredErrorLoss. Pair
+   * BinaryCrossEntropyLoss with a SigmoidActivation output layer, or SoftmaxCrossEntropyLoss with a SoftmaxActivation
+   * output layer, to get their fused gradients, which don't shrink when the output saturates.
+   *
+   * @param loss The loss function.
+   * @throws PonderInvalidInputException Indicates a null loss function.
+   */
+  public void setLoss(Loss loss) throws PonderInvalidInputException
+  {
+    if(loss == null)
+    {
+      throw new PonderInvalidInputException("Loss function is null!");
+    }
+    this.loss = loss;
+  }
+
+  public Loss getLoss()
+  {
+    return loss;
+  }
+
+  /**
+   * Trade computation for memory during training. With an interval of k, the layers are split into segments of k
+   * layers, counted down from the output layer, and between run and backPropagate only the first layer of each
+   * segment keeps its inputs; every other activation outside the last segment is released. Back propagation then fires
+   * each segment again from its checkpoint, one segment at a time, and releases its activations and errors as soon as
+   * they have been used. For L layers, an interval near sqrt(L) holds about 2 * sqrt(L) layers' activations at once,
+   * at the cost of firing the layers below the last segment twice per training step.
+   *
+   * The trained weights are identical with or without checkpointing.
+   *
+   * @param checkpointInterval The number of layers per segment. 1 keeps every layer's activations.
+   * @throws PonderInvalidInputException Indicates an interval less than 1.
+   */
+  public void setCheckpointInterval(int checkpointInterval) throws PonderInvalidInputException
+  {
+    if(checkpointInterval < 1)
+    {
+      throw new PonderInvalidInputException("Checkpoint interval must be at least 1!");
+    }
+    this.checkpointInterval = checkpointInterval;
+  }
+
+  public int getCheckpointInterval()
+  {
+    return checkpointInterval;
+  }
+
+  /**
+   *
+   * @return The largest number of doubles (inputs, outputs and errors) held by the layers at once since the last reset.
+   *         An array shared by two layers, such as one layer's outputs and the next layer's inputs, is counted once.
+   */
+  public long getPeakRetainedDoubles()
+  {
+    return peakRetainedDoubles;
+  }
+
+  /**
+   *
+   * @return The number of layer firings during runs since the last reset.
+   */
+  public long getForwardLayerCount()
+  {
+    return forwardLayerCount;
+  }
+
+  /**
+   *
+   * @return The number of extra layer firings done to recompute released activations since the last reset.
+   */
+  public long getRecomputedLayerCount()
+  {
+    return recomputedLayerCount;
+  }
+
+  public void resetActivationStatistics()
+  {
+    peakRetainedDoubles = retainedDoubles;
+    forwardLayerCount = 0L;
+    recomputedLayerCount = 0L;
+  }
+
+  /**
+   * Mark the start of a change to the weights or biases, including changes made directly through the neurons, e.g. by
+   * NetworkPruner. Every call must be followed by endParameterChange, even if the change fails.
+   */
+  void beginParameterChange()
+  {
+    parameterVersion++;
+    // Keep the parameter writes that follow from being reordered before the version becomes odd.
+    VarHandle.releaseFence();
+  }
+
+  /**
+   * Mark the end of a change started by beginParameterChange.
+   */
+  void endParameterChange()
+  {
+    parameterVersion++;
+  }
+
+  /**
+   *
+   * @return A counter which changes every time this network's weights or biases change. It is odd while a change is in
+   *         progress.
+   */
+  public long getParameterVersion()
+  {
+    return parameterVersion;
+  }
+
+  List<Layer> getLayers()
+  {
+    return layers;
+  }
+
+  /**
+   *
+   * @return The number of features expected by the first layer.
+   */
+  public int getInputCount()
+  {
+    return layers.get(0).getInputCount();
+  }
+
+  /**
+   *
+   * @return The number of neurons on the last layer, which is also the number of outputs.
+   */
+  public int getOutputCount()
+  {
+    return layers.get(layers.size() - 1).getNeuronCount();
+  }
+
+  /**
+   * Copy the current weights into an immutable snapshot which can be run from any number of threads while this network
+   * continues to train.
+   *
+   * @param version The version to stamp on the snapshot.
+   * @return The new snapshot.
+   */
+  public NetworkSnapshot snapshot(long version)
+  {
+    return new NetworkSnapshot(layers, version);
   }
 
   /**
@@ -46,16 +270,45 @@ public class NeuralNetwork
 
     double[] layerOutputs = inputs;
 
-    for (Layer layer : layers)
+    for (int layerIndex = 0; layerIndex < layers.size(); layerIndex++)
     {
-      layerOutputs = layer.fireLayer(layerOutputs);
+      layerOutputs = layers.get(layerIndex).fireLayer(layerOutputs);
+      afterForwardFire(layerIndex);
     }
 
     return layerOutputs;
   }
 
   /**
-   * For the output layer, iterate through the neurons and calculate the error for each neuron as:
+   * Run one sparse set of features through the network. The first layer only reads (and, during back propagation,
+   * only updates) the weights for non-zero features; all later layers run as usual.
+   *
+   * @param inputs Run one sparse set of features through the network.
+   * @return The outputs from the run.
+   * @throws PonderInvalidInputException Indicates invalid inputs, such as an incorrect input feature count.
+   */
+  public double[] run(SparseVector inputs) throws PonderInvalidInputException
+  {
+    if(inputs.getDimension() != layers.get(0).getInputCount())
+    {
+      throw new PonderInvalidInputException("Input count for run does not match neuron count for the first layer!");
+    }
+
+    double[] layerOutputs = layers.get(0).fireLayer(inputs);
+    afterForwardFire(0);
+
+    for (int layerIndex = 1; layerIndex < layers.size(); layerIndex++)
+    {
+      layerOutputs = layers.get(layerIndex).fireLayer(layerOutputs);
+      afterForwardFire(layerIndex);
+    }
+
+    return layerOutputs;
+  }
+
+  /**
+   * For the output layer, the error for each neuron is calculated by the configured Loss (see setLoss) from the
+   * expected and actual values and the output layer's activation. With the default MeanSquaredErrorLoss this is:
    *    (expected - actual) * derivative of activation for the actual
    *
    * For hidden layers, iterate through the neurons (in reverse order) and calculate the error for each neuron as:
@@ -83,40 +336,38 @@ public class NeuralNetwork
       throw new PonderInvalidInputException(
           "The number of expected values does not match the number of output neurons!");
     }
+    if(lastLayer.getLastOutputs() == null)
+    {
+      throw new PonderInvalidInputException("Network must be run before back propagating!");
+    }
+
+    if(checkpointInterval > 1)
+    {
+      // The weights are updated segment by segment as the errors are calculated, so the whole pass is one change.
+      beginParameterChange();
+      try
+      {
+        backPropagateWithRecomputation(learningRate, expectedValues);
+      }
+      finally
+      {
+        endParameterChange();
+      }
+      return;
+    }
 
     // --------------------------------------------------
     // Calculate errors
     // --------------------------------------------------
 
-    // Calculate the last layer's error set. For the last layer, this is the difference from the output values.
-    // There is no need to calculate partial error because for the output layer, the weights would be all zero, except
-    // one weight which would be exactly one. The index of the value 1 corresponds to the index for the output neuron.
-    for (int outputIndex = 0; outputIndex < expectedValues.length; outputIndex++)
-    {
-      final Neuron neuron = lastLayer.getNeurons().get(outputIndex);
-      neuron.setLastError(
-          (expectedValues[outputIndex] - neuron.getLastOutput())
-              * lastLayer.getActivatorFunction().calculateDerivative(neuron.getLastOutput()));
-    }
+    calculateOutputErrors(expectedValues);
 
     // Iterate backwards through the layers, except the last layer because we've already calculated its errors.
     for (int layerIndex = layers.size() - 2; layerIndex >= 0; layerIndex--)
     {
-      Layer layer = layers.get(layerIndex);
-
-      // For each layer, iterate through each neuron. For each neuron, multiply the errors for the next layer by the
-      // weight of the output of the current neuron to each respective next-layer neuron.
-      for (int neuronIndex = 0; neuronIndex < layer.getNeuronCount(); neuronIndex++)
-      {
-        double sumOfErrors = 0d;
-        Neuron neuron = layer.getNeurons().get(neuronIndex);
-        for (Neuron nextLayerNeuron : layers.get(layerIndex + 1).getNeurons())
-        {
-          sumOfErrors += nextLayerNeuron.getWeight(neuronIndex) * nextLayerNeuron.getLastError();
-        }
-        neuron.setLastError(sumOfErrors * layer.getActivatorFunction().calculateDerivative(neuron.getLastOutput()));
-      }
+      calculateHiddenErrors(layerIndex);
     }
+    updateRetainedDoubles();
 
     // --------------------------------------------------
     // Update weights
@@ -132,14 +383,176 @@ public class NeuralNetwork
 
     // Next, update the weights using the same iteration pattern. We can't do this at the same time as the error
     // calculation because that uses the previous weight to calculate error values.
+    beginParameterChange();
     for(int layerIndex = layers.size() - 1; layerIndex >= 0; layerIndex--)
     {
-      Layer layer = layers.get(layerIndex);
-      for (Neuron neuron : layer.getNeurons())
+      layers.get(layerIndex).applyErrors(learningRate);
+    }
+    endParameterChange();
+  }
+
+  /**
+   * Back propagate one checkpoint segment at a time, from the output layer down.
+   *
+   * The last segment still holds its activations from the run. Every lower segment is first fired again from the inputs
+   * its first layer kept as a checkpoint; since the weights below the segment have not been updated yet, this
+   * reproduces exactly the activations of the run. A layer's weights are updated as soon as the layer below it has
+   * used them to calculate its errors, and its activations and errors are then released, so at most one segment's
+   * activations are held on top of the checkpoints. Every error is still calculated from the weights as they were
+   * before this step, so the result is identical to back propagating without checkpointing.
+   */
+  private void backPropagateWithRecomputation(double learningRate, double[] expectedValues)
+      throws PonderInvalidInputException
+  {
+    final int lastLayerIndex = layers.size() - 1;
+    final int offset = getSegmentOffset();
+    final int lastSegment = getSegment(lastLayerIndex);
+
+    for (int segment = lastSegment; segment >= 0; segment--)
+    {
+      final int baseLayerIndex = Math.max(0, segment * checkpointInterval - offset);
+      final int topLayerIndex = (segment + 1) * checkpointInterval - 1 - offset;
+      if(segment != lastSegment)
       {
-        neuron.applyError(learningRate);
+        recomputeSegment(baseLayerIndex, topLayerIndex);
+      }
+
+      for (int layerIndex = topLayerIndex; layerIndex >= baseLayerIndex; layerIndex--)
+      {
+        if(layerIndex == lastLayerIndex)
+        {
+          calculateOutputErrors(expectedValues);
+        }
+        else
+        {
+          calculateHiddenErrors(layerIndex);
+
+          // The layer above is no longer needed for error calculation, so it can be updated and released.
+          layers.get(layerIndex + 1).applyErrors(learningRate);
+          layers.get(layerIndex + 1).releaseActivations(false);
+        }
+        updateRetainedDoubles();
       }
+    }
+
+    layers.get(0).applyErrors(learningRate);
+    layers.get(0).releaseActivations(false);
+    updateRetainedDoubles();
+  }
 
+  /**
+   * Fire a segment's layers again, starting from the inputs its first layer kept as a checkpoint.
+   */
+  private void recomputeSegment(int baseLayerIndex, int topLayerIndex) throws PonderInvalidInputException
+  {
+    final Layer baseLayer = layers.get(baseLayerIndex);
+    if(!baseLayer.hasLastInputs())
+    {
+      throw new PonderInvalidInputException("Network must be run before back propagating!");
+    }
+
+    double[] layerOutputs = baseLayer.refire();
+    recomputedLayerCount++;
+    updateRetainedDoubles();
+    for (int layerIndex = baseLayerIndex + 1; layerIndex <= topLayerIndex; layerIndex++)
+    {
+      layerOutputs = layers.get(layerIndex).fireLayer(layerOutputs);
+      recomputedLayerCount++;
+      updateRetainedDoubles();
+    }
+  }
+
+  /**
+   * Count a layer firing during a run and, when checkpointing, release the activations the layer won't keep: every
+   * layer below the last segment releases its outputs, and all but the first layer of each segment its inputs too.
+   */
+  private void afterForwardFire(int layerIndex)
+  {
+    forwardLayerCount++;
+    if(checkpointInterval > 1 && getSegment(layerIndex) != getSegment(layers.size() - 1))
+    {
+      final boolean isCheckpoint = layerIndex == 0 || (layerIndex + getSegmentOffset()) % checkpointInterval == 0;
+      layers.get(layerIndex).releaseActivations(isCheckpoint);
+    }
+    updateRetainedDoubles();
+  }
+
+  /**
+   *
+   * @return How far the segments are shifted down so that the last segment ends at the output layer.
+   */
+  private int getSegmentOffset()
+  {
+    return (checkpointInterval - layers.size() % checkpointInterval) % checkpointInterval;
+  }
+
+  private int getSegment(int layerIndex)
+  {
+    return (layerIndex + getSegmentOffset()) / checkpointInterval;
+  }
+
+  /**
+   * Recount the doubles the layers hold and update the peak. An array shared between a layer's outputs and the next
+   * layer's inputs is counted once.
+   */
+  private void updateRetainedDoubles()
+  {
+    long count = 0L;
+    double[] previousOutputs = null;
+    for (Layer layer : layers)
+    {
+      final double[] lastInputs = layer.getLastInputs();
+      if(lastInputs != null && lastInputs != previousOutputs)
+      {
+        count += lastInputs.length;
+      }
+      count += layer.getLastSparseInputSize();
+
+      previousOutputs = layer.getLastOutputs();
+      if(previousOutputs != null)
+      {
+        count += previousOutputs.length;
+      }
+      if(layer.hasErrors())
+      {
+        count += layer.getNeuronCount();
+      }
+    }
+
+    retainedDoubles = count;
+    peakRetainedDoubles = Math.max(peakRetainedDoubles, count);
+  }
+
+  /**
+   * Calculate the last layer's error set. The loss function turns the expected values and the outputs of the last run
+   * into an error for each output neuron.
+   */
+  private void calculateOutputErrors(double[] expectedValues)
+  {
+    final Layer lastLayer = layers.get(layers.size() - 1);
+    loss.calculateOutputErrors(expectedValues, lastLayer.getLastOutputs(), lastLayer.getActivatorFunction(),
+        lastLayer.getErrors());
+  }
+
+  /**
+   * For a hidden layer, iterate through each neuron. For each neuron, multiply the errors for the next layer by the
+   * weight of the output of the current neuron to each respective next-layer neuron.
+   */
+  private void calculateHiddenErrors(int layerIndex)
+  {
+    final Layer layer = layers.get(layerIndex);
+    final Layer nextLayer = layers.get(layerIndex + 1);
+    final double[] lastOutputs = layer.getLastOutputs();
+    final double[] errors = layer.getErrors();
+    final double[] nextErrors = nextLayer.getErrors();
+    for (int neuronIndex = 0; neuronIndex < layer.getNeuronCount(); neuronIndex++)
+    {
+      double sumOfErrors = 0d;
+      for (int nextNeuronIndex = 0; nextNeuronIndex < nextLayer.getNeuronCount(); nextNeuronIndex++)
+      {
+        sumOfErrors += nextLayer.getNeurons().get(nextNeuronIndex).getWeight(neuronIndex) * nextErrors[nextNeuronIndex];
+      }
+      errors[neuronIndex] = sumOfErrors * layer.getActivatorFunction().calculateDerivative(lastOutputs[neuronIndex]);
     }
   }
 
@@ -166,4 +579,140 @@ public class NeuralNetwork
     }
     return outputBuilder.toString();
   }
+
+  /**
+   * Fold input standardization into the first layer, so that a network trained on standardized inputs can be run on raw
+   * inputs with no extra per-run cost. Each first-layer neuron computes
+   *    bias + sum(w[i] * (x[i] - mean[i]) / scale[i])
+   * which is rewritten as
+   *    (bias - sum(w[i] * mean[i] / scale[i])) + sum((w[i] / scale[i]) * x[i])
+   *
+   * Call this once, after training; the network then expects raw inputs in the same feature order as the statistics.
+   *
+   * @param statistics The statistics that were used to standardize the training data.
+   * @throws PonderInvalidInputException Indicates that the statistics do not match the first layer's input count.
+   */
+  public void foldStandardization(FeatureStatistics statistics) throws PonderInvalidInputException
+  {
+    final Layer firstLayer = layers.get(0);
+    if(statistics.getFeatureCount() != firstLayer.getInputCount())
+    {
+      throw new PonderInvalidInputException("Feature statistics count does not match the first layer's input count!");
+    }
+
+    beginParameterChange();
+    for (Neuron neuron : firstLayer.getNeurons())
+    {
+      double bias = neuron.getBias();
+      for (int weightIndex = 0; weightIndex < neuron.getWeightCount(); weightIndex++)
+      {
+        double scaledWeight = neuron.getWeight(weightIndex) / statistics.getScale(weightIndex);
+        bias -= scaledWeight * statistics.getMean(weightIndex);
+        neuron.setWeight(weightIndex, scaledWeight);
+      }
+      neuron.setBias(bias);
+    }
+    endParameterChange();
+  }
+
+  /**
+   *
+   * @return The total number of weights and biases in this network.
+   */
+  public int getParameterCount()
+  {
+    int parameterCount = 0;
+    for (Layer layer : layers)
+    {
+      parameterCount += layer.getNeuronCount() * (layer.getInputCount() + 1);
+    }
+    return parameterCount;
+  }
+
+  /**
+   * Flatten every weight and bias into a single array. Parameters are ordered by layer, then by neuron; each neuron
+   * contributes its weights followed by its bias.
+   *
+   * @return A new array of length getParameterCount().
+   */
+  public double[] getParameters()
+  {
+    double[] parameters = new double[getParameterCount()];
+
+    int parameterIndex = 0;
+    for (Layer layer : layers)
+    {
+      for (Neuron neuron : layer.getNeurons())
+      {
+        for (int weightIndex = 0; weightIndex < neuron.getWeightCount(); weightIndex++)
+        {
+          parameters[parameterIndex++] = neuron.getWeight(weightIndex);
+        }
+        parameters[parameterIndex++] = neuron.getBias();
+      }
+    }
+
+    return parameters;
+  }
+
+  /**
+   * Overwrite every weight and bias from a flat array laid out as by getParameters().
+   *
+   * @param parameters The new parameters.
+   * @throws PonderInvalidInputException Indicates a parameter count that does not match this network.
+   */
+  public void setParameters(double[] parameters) throws PonderInvalidInputException
+  {
+    if(parameters.length != getParameterCount())
+    {
+      throw new PonderInvalidInputException("Parameter count does not match the network's parameter count!");
+    }
+
+    beginParameterChange();
+    int parameterIndex = 0;
+    for (Layer layer : layers)
+    {
+      for (Neuron neuron : layer.getNeurons())
+      {
+        for (int weightIndex = 0; weightIndex < neuron.getWeightCount(); weightIndex++)
+        {
+          neuron.setWeight(weightIndex, parameters[parameterIndex++]);
+        }
+        neuron.setBias(parameters[parameterIndex++]);
+      }
+    }
+    endParameterChange();
+  }
+
+  /**
+   * Store a snapshot of this network's parameters in one row of an off-heap matrix. Storing many snapshots (or many
+   * same-shaped networks) as rows of one matrix keeps them off the heap and lets other threads read them in place.
+   *
+   * @param target The matrix to write into. Must have getParameterCount() columns.
+   * @param row The row to write.
+   * @throws PonderInvalidInputException Indicates a matrix of the wrong width.
+   */
+  public void writeParameters(OffHeapMatrix target, int row) throws PonderInvalidInputException
+  {
+    target.setRow(row, getParameters());
+  }
+
+  /**
+   * Restore this network's parameters from one row of an off-heap matrix written by writeParameters.
+   *
+   * @param source The matrix to read from. Must have getParameterCount() columns.
+   * @param row The row to read.
+   * @throws PonderInvalidInputException Indicates a matrix of the wrong width.
+   */
+  public void readParameters(OffHeapMatrix source, int row) throws PonderInvalidInputException
+  {
+    if(source.getColumnCount() != getParameterCount())
+    {
+      throw new PonderInvalidInputException("Parameter count does not match the network's parameter count!");
+    }
+
+    double[] parameters = new double[source.getColumnCount()];
+    source.copyRow(row, parameters);
+    setParameters(parameters);
+  }
 }
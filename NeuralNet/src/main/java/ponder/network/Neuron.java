@@ -1,6 +1,7 @@
 package ponder.network;
 
 import ponder.activation.Activation;
+import ponder.data.SparseVector;
 import ponder.err.PonderInvalidInputException;
 
 import java.util.Arrays;
@@ -15,10 +16,6 @@ public class Neuron
   private double bias;
   private double[] weights;
 
-  private double[] lastInputSet;
-  private double lastOutput;
-  private double lastError = 0d;
-
   /**
    * Initialize this Neuron with the specified parameters.
    *
@@ -51,14 +48,26 @@ public class Neuron
    * @throws PonderInvalidInputException Indicates invalid neuron configuration.
    */
   public Neuron(int numWeights, Activation activatorFunction) throws PonderInvalidInputException
+  {
+    this(numWeights, activatorFunction, new Random());
+  }
+
+  /**
+   * Initialize this Neuron with the specified number of weights drawn from the given random number generator in the
+   * range [-1,1]. Passing a seeded generator makes the initial weights reproducible.
+   *
+   * @param numWeights The number of weights to randomly initialize.
+   * @param activatorFunction The activator function for this neuron.
+   * @param rng The random number generator for the initial weights.
+   * @throws PonderInvalidInputException Indicates invalid neuron configuration.
+   */
+  public Neuron(int numWeights, Activation activatorFunction, Random rng) throws PonderInvalidInputException
   {
     if(numWeights == 0)
     {
       throw new PonderInvalidInputException("Neuron initial weight count is empty!");
     }
 
-    final Random rng = new Random();
-
     bias = 1.0d;
 
     // In this case, initialize the weight matrix with small random values.
@@ -72,7 +81,7 @@ public class Neuron
 
   /**
    * Fire this neuron. This method takes the inputs, applies the weights and bias, and then runs the activator
-   * function.
+   * function. The neuron keeps no record of the firing; the layer holds the activations needed for back propagation.
    *
    * @param inputs The inputs, which must be equal in number to the weights.
    * @return The calculated output value.
@@ -90,8 +99,6 @@ public class Neuron
       throw new PonderInvalidInputException("Neuron input count does not match weight count!");
     }
 
-    lastInputSet = inputs;
-
     double result = bias;
 
     for(int i=0; i<weights.length; i++)
@@ -99,8 +106,40 @@ public class Neuron
       result += weights[i] * inputs[i];
     }
 
-    lastOutput = activatorFunction.activate(result);
-    return lastOutput;
+    return activatorFunction.activate(result);
+  }
+
+  /**
+   * Fire this neuron against a sparse set of inputs. Only the weights for non-zero inputs are read, and only those
+   * weights will be updated by the next call to applyError.
+   *
+   * @param inputs The inputs, whose dimension must be equal to the number of weights.
+   * @return The calculated output value.
+   * @throws PonderInvalidInputException Indicates that an invalid set of inputs was provided.
+   */
+  public double fire(SparseVector inputs, Activation activatorFunction) throws PonderInvalidInputException
+  {
+    if(inputs == null)
+    {
+      throw new PonderInvalidInputException("Neuron input is null!");
+    }
+
+    if(inputs.getDimension() != weights.length)
+    {
+      throw new PonderInvalidInputException("Neuron input count does not match weight count!");
+    }
+
+    final int[] indices = inputs.getIndices();
+    final double[] values = inputs.getValues();
+
+    double result = bias;
+
+    for(int i=0; i<indices.length; i++)
+    {
+      result += weights[indices[i]] * values[i];
+    }
+
+    return activatorFunction.activate(result);
   }
 
   /**
@@ -112,38 +151,61 @@ public class Neuron
     return weights.length;
   }
 
-  public double getLastOutput()
+  public double getWeight(int index)
   {
-    return lastOutput;
+    return weights[index];
   }
 
-  public void setLastError(double lastError)
+  public double getBias()
   {
-    this.lastError = lastError;
+    return bias;
   }
 
-  public double getLastError()
+  void setWeight(int index, double weight)
   {
-    return lastError;
+    weights[index] = weight;
   }
 
-  public double getWeight(int index)
+  void setBias(double bias)
   {
-    return weights[index];
+    this.bias = bias;
   }
 
-  public double getBias()
+  /**
+   * Move the weights and bias along this neuron's error for one firing.
+   *
+   * @param learningRate A small decimal multiplied by the error to prevent oscillation.
+   * @param error The neuron's error for the firing.
+   * @param inputs The inputs the neuron was fired with.
+   */
+  public void applyError(double learningRate, double error, double[] inputs)
   {
-    return bias;
+    final double updateAmount = learningRate * error;
+
+    for (int i = 0; i < weights.length; i++)
+    {
+      weights[i] += updateAmount * inputs[i];
+    }
+    bias += updateAmount;
   }
 
-  public void applyError(double learningRate)
+  /**
+   * Move the weights and bias along this neuron's error for one sparse firing. Zero inputs contribute nothing to the
+   * weight update, so only the weights for non-zero inputs are touched.
+   *
+   * @param learningRate A small decimal multiplied by the error to prevent oscillation.
+   * @param error The neuron's error for the firing.
+   * @param inputs The sparse inputs the neuron was fired with.
+   */
+  public void applyError(double learningRate, double error, SparseVector inputs)
   {
-    final double updateAmount = learningRate * lastError;
+    final double updateAmount = learningRate * error;
 
-    for (int i = 0; i < weights.length; i++)
+    final int[] indices = inputs.getIndices();
+    final double[] values = inputs.getValues();
+    for (int i = 0; i < indices.length; i++)
     {
-      weights[i] += updateAmount * lastInputSet[i];
+      weights[indices[i]] += updateAmount * values[i];
     }
     bias += updateAmount;
   }
@@ -0,0 +1,317 @@
+package ponder.network;
+
+import ponder.err.PonderInvalidInputException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Trains a live network from a stream of examples instead of a fixed training set.
+ *
+ * Producers submit rows (one at a time or in micro-batches) to a bounded queue. A single background thread drains the
+ * queue, trains the network on each row, and periodically publishes a fresh NetworkSnapshot. Readers call predict (or
+ * getSnapshot) and always see a complete, consistent set of weights without ever blocking on the trainer.
+ *
+ * A snapshot is published after publishInterval rows have been trained, or after maxPublishDelayMillis has passed since
+ * the last publication with at least one new row trained, whichever comes first. This bounds how stale the weights
+ * seen by readers can be.
+ */
+public class OnlineTrainer
+{
+  /**
+   * How long a blocked producer waits for space before checking again whether the trainer thread has failed.
+   */
+  private static final long ENQUEUE_POLL_MILLIS = 100L;
+
+  private static final class TrainingExample
+  {
+    private final double[] inputs;
+    private final double[] expectedValues;
+
+    private TrainingExample(double[] inputs, double[] expectedValues)
+    {
+      this.inputs = inputs;
+      this.expectedValues = expectedValues;
+    }
+  }
+
+  private final NeuralNetwork neuralNetwork;
+  private final BlockingQueue<TrainingExample> queue;
+
+  private volatile double learningRate = 0.3d;
+  private final int microBatchSize;
+  private final int publishInterval;
+  private final long maxPublishDelayMillis;
+
+  /**
+   * The latest published snapshot. Replaced wholesale on each publication, so readers never see a partial update.
+   */
+  private volatile NetworkSnapshot snapshot;
+
+  private volatile long trainedCount = 0L;
+  private volatile PonderInvalidInputException failure = null;
+  private Thread trainerThread = null;
+
+  /**
+   *
+   * @param neuralNetwork The network to train. Once started, only the trainer thread may touch it.
+   * @param queueCapacity The largest number of rows that may wait for training before producers block.
+   * @param microBatchSize The largest number of rows taken from the queue at once.
+   * @param publishInterval The number of trained rows after which a new snapshot is published.
+   * @param maxPublishDelayMillis The longest time a trained row may wait before being published.
+   * @throws PonderInvalidInputException Indicates a capacity, batch size or interval that is not positive, or a
+   *                                     negative publish delay.
+   */
+  public OnlineTrainer(NeuralNetwork neuralNetwork, int queueCapacity, int microBatchSize, int publishInterval,
+                       long maxPublishDelayMillis) throws PonderInvalidInputException
+  {
+    if(queueCapacity <= 0)
+    {
+      throw new PonderInvalidInputException("Online training queue capacity must be positive!");
+    }
+    if(microBatchSize <= 0)
+    {
+      throw new PonderInvalidInputException("Online training micro-batch size must be positive!");
+    }
+    if(publishInterval <= 0)
+    {
+      throw new PonderInvalidInputException("Online training publish interval must be positive!");
+    }
+    if(maxPublishDelayMillis < 0L)
+    {
+      throw new PonderInvalidInputException("Online training publish delay must not be negative!");
+    }
+
+    this.neuralNetwork = neuralNetwork;
+    this.queue = new LinkedBlockingQueue<>(queueCapacity);
+    this.microBatchSize = microBatchSize;
+    this.publishInterval = publishInterval;
+    this.maxPublishDelayMillis = maxPublishDelayMillis;
+    this.snapshot = neuralNetwork.snapshot(0L);
+  }
+
+  public void setLearningRate(double learningRate)
+  {
+    this.learningRate = learningRate;
+  }
+
+  /**
+   * Queue one row for training, blocking while the queue is full.
+   *
+   * @param inputs The input features, in network order.
+   * @param expectedValues The values that should be produced at the output layer.
+   * @throws PonderInvalidInputException Indicates a row that does not match the network's shape, or rethrows the error
+   *                                     which stopped the trainer thread.
+   * @throws InterruptedException Indicates the caller was interrupted while waiting for space.
+   */
+  public void submit(double[] inputs, double[] expectedValues) throws PonderInvalidInputException, InterruptedException
+  {
+    enqueue(createExample(inputs, expectedValues));
+  }
+
+  /**
+   * Queue one row for training without blocking.
+   *
+   * @return False if the queue was full and the row was dropped.
+   * @throws PonderInvalidInputException Indicates a row that does not match the network's shape, or rethrows the error
+   *                                     which stopped the trainer thread.
+   */
+  public boolean offer(double[] inputs, double[] expectedValues) throws PonderInvalidInputException
+  {
+    checkFailure();
+    return queue.offer(createExample(inputs, expectedValues));
+  }
+
+  /**
+   * Queue a micro-batch of rows for training, blocking while the queue is full.
+   *
+   * @param inputs The input features for each row.
+   * @param expectedValues The expected output values for each row.
+   * @throws PonderInvalidInputException Indicates a row that does not match the network's shape, or rethrows the error
+   *                                     which stopped the trainer thread.
+   * @throws InterruptedException Indicates the caller was interrupted while waiting for space.
+   */
+  public void submitBatch(double[][] inputs, double[][] expectedValues)
+      throws PonderInvalidInputException, InterruptedException
+  {
+    if(inputs.length != expectedValues.length)
+    {
+      throw new PonderInvalidInputException("Input row count does not match expected value row count!");
+    }
+
+    // Validate the whole batch first so that a bad row doesn't leave a partial batch queued.
+    List<TrainingExample> examples = new ArrayList<>(inputs.length);
+    for (int rowIndex = 0; rowIndex < inputs.length; rowIndex++)
+    {
+      examples.add(createExample(inputs[rowIndex], expectedValues[rowIndex]));
+    }
+
+    for (TrainingExample example : examples)
+    {
+      enqueue(example);
+    }
+  }
+
+  /**
+   * Start the background trainer thread.
+   */
+  public synchronized void start()
+  {
+    if(trainerThread != null)
+    {
+      return;
+    }
+
+    trainerThread = new Thread(this::trainLoop, "ponder-online-trainer");
+    trainerThread.setDaemon(true);
+    trainerThread.start();
+  }
+
+  /**
+   * Stop the background trainer thread and publish a final snapshot. Rows still waiting in the queue are discarded.
+   *
+   * @throws InterruptedException Indicates the caller was interrupted while waiting for the trainer to finish.
+   */
+  public synchronized void stop() throws InterruptedException
+  {
+    if(trainerThread == null)
+    {
+      return;
+    }
+
+    trainerThread.interrupt();
+    trainerThread.join();
+    trainerThread = null;
+  }
+
+  /**
+   * Run one set of features through the most recently published snapshot. Never blocks on training.
+   *
+   * @param inputs One set of features.
+   * @return The outputs from the run.
+   * @throws PonderInvalidInputException Indicates an incorrect input feature count.
+   */
+  public double[] predict(double[] inputs) throws PonderInvalidInputException
+  {
+    return snapshot.run(inputs);
+  }
+
+  public NetworkSnapshot getSnapshot()
+  {
+    return snapshot;
+  }
+
+  /**
+   *
+   * @return The number of rows trained so far.
+   */
+  public long getTrainedCount()
+  {
+    return trainedCount;
+  }
+
+  /**
+   *
+   * @return The error which stopped the trainer thread, or null if it has not failed.
+   */
+  public PonderInvalidInputException getFailure()
+  {
+    return failure;
+  }
+
+  /**
+   * Wait for space in the queue, but give up and rethrow the trainer thread's error if it fails in the meantime, since
+   * nothing would ever drain the queue again.
+   */
+  private void enqueue(TrainingExample example) throws PonderInvalidInputException, InterruptedException
+  {
+    checkFailure();
+    while (!queue.offer(example, ENQUEUE_POLL_MILLIS, TimeUnit.MILLISECONDS))
+    {
+      checkFailure();
+    }
+  }
+
+  private void checkFailure() throws PonderInvalidInputException
+  {
+    PonderInvalidInputException trainerFailure = failure;
+    if(trainerFailure != null)
+    {
+      throw trainerFailure;
+    }
+  }
+
+  private TrainingExample createExample(double[] inputs, double[] expectedValues) throws PonderInvalidInputException
+  {
+    if(inputs.length != neuralNetwork.getInputCount())
+    {
+      throw new PonderInvalidInputException("Input count does not match neuron count for the first layer!");
+    }
+    if(expectedValues.length != neuralNetwork.getOutputCount())
+    {
+      throw new PonderInvalidInputException(
+          "The number of expected values does not match the number of output neurons!");
+    }
+
+    // Copy the row, since the producer may reuse its arrays once submit returns.
+    return new TrainingExample(inputs.clone(), expectedValues.clone());
+  }
+
+  private void trainLoop()
+  {
+    final List<TrainingExample> batch = new ArrayList<>(microBatchSize);
+    int unpublishedCount = 0;
+    long lastPublishTime = System.currentTimeMillis();
+
+    try
+    {
+      while (!Thread.currentThread().isInterrupted())
+      {
+        // Wait for work, but wake up in time to honour the publication deadline.
+        TrainingExample first = queue.poll(Math.max(1L, maxPublishDelayMillis), TimeUnit.MILLISECONDS);
+        if(first != null)
+        {
+          batch.add(first);
+          queue.drainTo(batch, microBatchSize - 1);
+
+          final double currentLearningRate = learningRate;
+          for (TrainingExample example : batch)
+          {
+            neuralNetwork.run(example.inputs);
+            neuralNetwork.backPropagate(currentLearningRate, example.expectedValues);
+          }
+          trainedCount += batch.size();
+          unpublishedCount += batch.size();
+          batch.clear();
+        }
+
+        long now = System.currentTimeMillis();
+        if(unpublishedCount >= publishInterval
+            || (unpublishedCount > 0 && now - lastPublishTime >= maxPublishDelayMillis))
+        {
+          publish();
+          unpublishedCount = 0;
+          lastPublishTime = now;
+        }
+      }
+    }
+    catch (InterruptedException e)
+    {
+      // Stop requested; fall through to the final publication.
+    }
+    catch (PonderInvalidInputException e)
+    {
+      failure = e;
+    }
+
+    publish();
+  }
+
+  private void publish()
+  {
+    snapshot = neuralNetwork.snapshot(snapshot.getVersion() + 1);
+  }
+}
@@ -0,0 +1,244 @@
+package ponder.network;
+
+import ponder.activation.Activation;
+
+/**
+ * An immutable copy of one layer's weights packed into flat arrays, with the loop kernels that a LayerPlan selects.
+ */
+final class PackedLayer
+{
+  final int numInputs;
+  final int numNeurons;
+  final double[] biases;
+  final Activation activatorFunction;
+
+  /**
+   * Weights indexed by [neuron * numInputs + input], for the ROW strategies. Null if not packed.
+   */
+  final double[] rowWeights;
+
+  /**
+   * Weights indexed by [input * numNeurons + neuron], for the COLUMN strategy. Null if not packed.
+   */
+  final double[] columnWeights;
+
+  PackedLayer(Layer layer, boolean packRows, boolean packColumns)
+  {
+    numInputs = layer.getInputCount();
+    numNeurons = layer.getNeuronCount();
+    activatorFunction = layer.getActivatorFunction();
+    biases = new double[numNeurons];
+    rowWeights = packRows ? new double[numNeurons * numInputs] : null;
+    columnWeights = packColumns ? new double[numNeurons * numInputs] : null;
+
+    for (int neuronIndex = 0; neuronIndex < numNeurons; neuronIndex++)
+    {
+      Neuron neuron = layer.getNeurons().get(neuronIndex);
+      biases[neuronIndex] = neuron.getBias();
+      for (int weightIndex = 0; weightIndex < numInputs; weightIndex++)
+      {
+        double weight = neuron.getWeight(weightIndex);
+        if(packRows)
+        {
+          rowWeights[neuronIndex * numInputs + weightIndex] = weight;
+        }
+        if(packColumns)
+        {
+          columnWeights[weightIndex * numNeurons + neuronIndex] = weight;
+        }
+      }
+    }
+  }
+
+  /**
+   * Calculate and activate the outputs of neurons [fromNeuron, toNeuron) for examples [fromExample, toExample). Layer
+   * normalization is left to the caller, since it needs every neuron's output.
+   */
+  void fire(LayerPlan plan, double[][] inputs, double[][] outputs, int fromExample, int toExample, int fromNeuron,
+            int toNeuron)
+  {
+    switch (plan.getStrategy())
+    {
+      case ROW:
+        fireRows(plan.getTileSize(), inputs, outputs, fromExample, toExample, fromNeuron, toNeuron);
+        break;
+      case ROW_UNROLLED:
+        fireRowsUnrolled(plan.getTileSize(), inputs, outputs, fromExample, toExample, fromNeuron, toNeuron);
+        break;
+      case ROW_INTERLEAVED:
+        fireRowsInterleaved(plan.getTileSize(), inputs, outputs, fromExample, toExample, fromNeuron, toNeuron);
+        break;
+      case COLUMN:
+        fireColumns(plan.getTileSize(), inputs, outputs, fromExample, toExample, fromNeuron, toNeuron);
+        break;
+    }
+
+    for (int exampleIndex = fromExample; exampleIndex < toExample; exampleIndex++)
+    {
+      final double[] exampleOutputs = outputs[exampleIndex];
+      for (int neuronIndex = fromNeuron; neuronIndex < toNeuron; neuronIndex++)
+      {
+        exampleOutputs[neuronIndex] = activatorFunction.activate(exampleOutputs[neuronIndex]);
+      }
+    }
+  }
+
+  private void fireRows(int tileSize, double[][] inputs, double[][] outputs, int fromExample, int toExample,
+                        int fromNeuron, int toNeuron)
+  {
+    for (int tileStart = fromExample; tileStart < toExample; tileStart += tileSize)
+    {
+      final int tileEnd = Math.min(toExample, tileStart + tileSize);
+      for (int neuronIndex = fromNeuron; neuronIndex < toNeuron; neuronIndex++)
+      {
+        final int rowOffset = neuronIndex * numInputs;
+        for (int exampleIndex = tileStart; exampleIndex < tileEnd; exampleIndex++)
+        {
+          outputs[exampleIndex][neuronIndex] = dot(rowOffset, inputs[exampleIndex], biases[neuronIndex]);
+        }
+      }
+    }
+  }
+
+  private void fireRowsUnrolled(int tileSize, double[][] inputs, double[][] outputs, int fromExample, int toExample,
+                                int fromNeuron, int toNeuron)
+  {
+    for (int tileStart = fromExample; tileStart < toExample; tileStart += tileSize)
+    {
+      final int tileEnd = Math.min(toExample, tileStart + tileSize);
+      for (int neuronIndex = fromNeuron; neuronIndex < toNeuron; neuronIndex++)
+      {
+        final int rowOffset = neuronIndex * numInputs;
+        for (int exampleIndex = tileStart; exampleIndex < tileEnd; exampleIndex++)
+        {
+          outputs[exampleIndex][neuronIndex] = dotUnrolled(rowOffset, inputs[exampleIndex], biases[neuronIndex]);
+        }
+      }
+    }
+  }
+
+  private void fireRowsInterleaved(int tileSize, double[][] inputs, double[][] outputs, int fromExample,
+                                   int toExample, int fromNeuron, int toNeuron)
+  {
+    for (int tileStart = fromExample; tileStart < toExample; tileStart += tileSize)
+    {
+      final int tileEnd = Math.min(toExample, tileStart + tileSize);
+      for (int neuronIndex = fromNeuron; neuronIndex < toNeuron; neuronIndex++)
+      {
+        fireRowInterleaved(rowWeights, neuronIndex * numInputs, numInputs, biases[neuronIndex], inputs, 0, outputs,
+            neuronIndex, tileStart, tileEnd);
+      }
+    }
+  }
+
+  /**
+   * Compute one row of weights against a range of examples, four examples at a time, so that each weight is loaded
+   * once for four multiply-adds. Every sum starts from the bias and adds the weighted inputs in order, exactly as
+   * Neuron.fire does.
+   *
+   * @param weights The packed weights.
+   * @param rowOffset The index of the row's first weight.
+   * @param fanIn The number of weights in the row.
+   * @param bias The row's bias.
+   * @param inputs The inputs of each example.
+   * @param inputOffset The index within each example's inputs of the input paired with the row's first weight.
+   * @param outputs Receives the sum for each example in column outputIndex, before activation.
+   * @param outputIndex The column of outputs to write.
+   * @param fromExample The first example to compute.
+   * @param toExample One past the last example to compute.
+   */
+  static void fireRowInterleaved(double[] weights, int rowOffset, int fanIn, double bias, double[][] inputs,
+                                 int inputOffset, double[][] outputs, int outputIndex, int fromExample, int toExample)
+  {
+    int exampleIndex = fromExample;
+    for (; exampleIndex + 3 < toExample; exampleIndex += 4)
+    {
+      final double[] inputs0 = inputs[exampleIndex];
+      final double[] inputs1 = inputs[exampleIndex + 1];
+      final double[] inputs2 = inputs[exampleIndex + 2];
+      final double[] inputs3 = inputs[exampleIndex + 3];
+      double result0 = bias;
+      double result1 = bias;
+      double result2 = bias;
+      double result3 = bias;
+      for (int i = 0; i < fanIn; i++)
+      {
+        final double weight = weights[rowOffset + i];
+        result0 += weight * inputs0[inputOffset + i];
+        result1 += weight * inputs1[inputOffset + i];
+        result2 += weight * inputs2[inputOffset + i];
+        result3 += weight * inputs3[inputOffset + i];
+      }
+      outputs[exampleIndex][outputIndex] = result0;
+      outputs[exampleIndex + 1][outputIndex] = result1;
+      outputs[exampleIndex + 2][outputIndex] = result2;
+      outputs[exampleIndex + 3][outputIndex] = result3;
+    }
+    for (; exampleIndex < toExample; exampleIndex++)
+    {
+      final double[] exampleInputs = inputs[exampleIndex];
+      double result = bias;
+      for (int i = 0; i < fanIn; i++)
+      {
+        result += weights[rowOffset + i] * exampleInputs[inputOffset + i];
+      }
+      outputs[exampleIndex][outputIndex] = result;
+    }
+  }
+
+  private double dot(int rowOffset, double[] exampleInputs, double bias)
+  {
+    double result = bias;
+    for (int i = 0; i < numInputs; i++)
+    {
+      result += rowWeights[rowOffset + i] * exampleInputs[i];
+    }
+    return result;
+  }
+
+  private double dotUnrolled(int rowOffset, double[] exampleInputs, double bias)
+  {
+    double sum0 = 0d;
+    double sum1 = 0d;
+    double sum2 = 0d;
+    double sum3 = 0d;
+    int i = 0;
+    for (; i + 3 < numInputs; i += 4)
+    {
+      sum0 += rowWeights[rowOffset + i] * exampleInputs[i];
+      sum1 += rowWeights[rowOffset + i + 1] * exampleInputs[i + 1];
+      sum2 += rowWeights[rowOffset + i + 2] * exampleInputs[i + 2];
+      sum3 += rowWeights[rowOffset + i + 3] * exampleInputs[i + 3];
+    }
+    for (; i < numInputs; i++)
+    {
+      sum0 += rowWeights[rowOffset + i] * exampleInputs[i];
+    }
+    return bias + ((sum0 + sum1) + (sum2 + sum3));
+  }
+
+  private void fireColumns(int tileSize, double[][] inputs, double[][] outputs, int fromExample, int toExample,
+                           int fromNeuron, int toNeuron)
+  {
+    for (int exampleIndex = fromExample; exampleIndex < toExample; exampleIndex++)
+    {
+      final double[] exampleInputs = inputs[exampleIndex];
+      final double[] exampleOutputs = outputs[exampleIndex];
+      System.arraycopy(biases, fromNeuron, exampleOutputs, fromNeuron, toNeuron - fromNeuron);
+
+      for (int tileStart = fromNeuron; tileStart < toNeuron; tileStart += tileSize)
+      {
+        final int tileEnd = Math.min(toNeuron, tileStart + tileSize);
+        for (int i = 0; i < numInputs; i++)
+        {
+          final double input = exampleInputs[i];
+          final int columnOffset = i * numNeurons;
+          for (int neuronIndex = tileStart; neuronIndex < tileEnd; neuronIndex++)
+          {
+            exampleOutputs[neuronIndex] += columnWeights[columnOffset + neuronIndex] * input;
+          }
+        }
+      }
+    }
+  }
+}
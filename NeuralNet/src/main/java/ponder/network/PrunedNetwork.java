@@ -0,0 +1,299 @@
+package ponder.network;
+
+import ponder.activation.Activation;
+import ponder.err.PonderInvalidInputException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable, compacted copy of a pruned network for inference.
+ *
+ * Each layer keeps only its non-zero weights, in compressed sparse row form, so a run does no work for pruned
+ * connections. Neurons and inputs that no longer feed anything are removed altogether. Working back from the outputs,
+ * a neuron is kept only if some kept neuron on the next layer has a non-zero weight for it, and an input feature is
+ * kept only if some kept first-layer neuron uses it. getRequiredInputs lists the surviving features, so callers can
+ * avoid loading the others at all (e.g. by passing getRequiredFeatureNames to InputSet.getInputFeatures).
+ *
+ * Like NetworkSnapshot, a PrunedNetwork holds no per-run state and can be run from any number of threads.
+ */
+public class PrunedNetwork
+{
+  /**
+   * One compacted layer. Neuron n's weights are values[rowStarts[n]..rowStarts[n + 1]), applied to the previous
+   * layer's (compacted) outputs at columns[rowStarts[n]..rowStarts[n + 1]).
+   */
+  private static final class SparseLayer
+  {
+    private final int[] rowStarts;
+    private final int[] columns;
+    private final double[] values;
+    private final double[] biases;
+    private final Activation activatorFunction;
+
+    private SparseLayer(int[] rowStarts, int[] columns, double[] values, double[] biases, Activation activatorFunction)
+    {
+      this.rowStarts = rowStarts;
+      this.columns = columns;
+      this.values = values;
+      this.biases = biases;
+      this.activatorFunction = activatorFunction;
+    }
+  }
+
+  private final int originalInputCount;
+  private final int[] requiredInputs;
+  private final SparseLayer[] layers;
+  private final int weightCount;
+
+  private PrunedNetwork(int originalInputCount, int[] requiredInputs, SparseLayer[] layers, int weightCount)
+  {
+    this.originalInputCount = originalInputCount;
+    this.requiredInputs = requiredInputs;
+    this.layers = layers;
+    this.weightCount = weightCount;
+  }
+
+  /**
+   * Compact the current weights of a network. Weights that are exactly zero are dropped, as are neurons and inputs
+   * that do not contribute to any output. Later training of the network does not affect the compacted copy.
+   *
+   * @param neuralNetwork The network to compact, typically after NetworkPruner.prune.
+   * @return The compacted network.
+   */
+  public static PrunedNetwork compact(NeuralNetwork neuralNetwork)
+  {
+    final List<Layer> sourceLayers = neuralNetwork.getLayers();
+    final int layerCount = sourceLayers.size();
+
+    // keptNeurons[l][n] says whether neuron n on layer l is kept. Every output neuron is kept; walking backwards, each
+    // layer's used columns decide which neurons of the layer before it (or, for the first layer, which inputs) are kept.
+    boolean[][] keptNeurons = new boolean[layerCount][];
+    keptNeurons[layerCount - 1] = new boolean[sourceLayers.get(layerCount - 1).getNeuronCount()];
+    Arrays.fill(keptNeurons[layerCount - 1], true);
+
+    boolean[] keptInputs = new boolean[sourceLayers.get(0).getInputCount()];
+    for (int layerIndex = layerCount - 1; layerIndex >= 0; layerIndex--)
+    {
+      Layer layer = sourceLayers.get(layerIndex);
+      if(layer.getActivatorFunction().isLayerNormalizing())
+      {
+        // Every neuron on a normalizing layer affects every other neuron's output, so none of them can be dropped.
+        Arrays.fill(keptNeurons[layerIndex], true);
+      }
+      boolean[] usedColumns = new boolean[layer.getInputCount()];
+      for (int neuronIndex = 0; neuronIndex < layer.getNeuronCount(); neuronIndex++)
+      {
+        if(!keptNeurons[layerIndex][neuronIndex])
+        {
+          continue;
+        }
+        Neuron neuron = layer.getNeurons().get(neuronIndex);
+        for (int weightIndex = 0; weightIndex < neuron.getWeightCount(); weightIndex++)
+        {
+          if(neuron.getWeight(weightIndex) != 0d)
+          {
+            usedColumns[weightIndex] = true;
+          }
+        }
+      }
+
+      if(layerIndex > 0)
+      {
+        keptNeurons[layerIndex - 1] = usedColumns;
+      }
+      else
+      {
+        keptInputs = usedColumns;
+      }
+    }
+
+    // Number the kept inputs, then build each layer forward, renumbering columns to the kept outputs of the layer
+    // before it.
+    int[] columnMapping = new int[keptInputs.length];
+    List<Integer> requiredInputList = new ArrayList<>();
+    for (int inputIndex = 0; inputIndex < keptInputs.length; inputIndex++)
+    {
+      columnMapping[inputIndex] = keptInputs[inputIndex] ? requiredInputList.size() : -1;
+      if(keptInputs[inputIndex])
+      {
+        requiredInputList.add(inputIndex);
+      }
+    }
+
+    SparseLayer[] layers = new SparseLayer[layerCount];
+    int weightCount = 0;
+    for (int layerIndex = 0; layerIndex < layerCount; layerIndex++)
+    {
+      Layer layer = sourceLayers.get(layerIndex);
+
+      int keptCount = 0;
+      int nonZeroCount = 0;
+      for (int neuronIndex = 0; neuronIndex < layer.getNeuronCount(); neuronIndex++)
+      {
+        if(keptNeurons[layerIndex][neuronIndex])
+        {
+          keptCount++;
+          Neuron neuron = layer.getNeurons().get(neuronIndex);
+          for (int weightIndex = 0; weightIndex < neuron.getWeightCount(); weightIndex++)
+          {
+            if(neuron.getWeight(weightIndex) != 0d && columnMapping[weightIndex] >= 0)
+            {
+              nonZeroCount++;
+            }
+          }
+        }
+      }
+
+      int[] rowStarts = new int[keptCount + 1];
+      int[] columns = new int[nonZeroCount];
+      double[] values = new double[nonZeroCount];
+      double[] biases = new double[keptCount];
+      int[] nextColumnMapping = new int[layer.getNeuronCount()];
+
+      int row = 0;
+      int entry = 0;
+      for (int neuronIndex = 0; neuronIndex < layer.getNeuronCount(); neuronIndex++)
+      {
+        if(!keptNeurons[layerIndex][neuronIndex])
+        {
+          nextColumnMapping[neuronIndex] = -1;
+          continue;
+        }
+
+        Neuron neuron = layer.getNeurons().get(neuronIndex);
+        rowStarts[row] = entry;
+        for (int weightIndex = 0; weightIndex < neuron.getWeightCount(); weightIndex++)
+        {
+          if(neuron.getWeight(weightIndex) != 0d && columnMapping[weightIndex] >= 0)
+          {
+            columns[entry] = columnMapping[weightIndex];
+            values[entry] = neuron.getWeight(weightIndex);
+            entry++;
+          }
+        }
+        biases[row] = neuron.getBias();
+        nextColumnMapping[neuronIndex] = row;
+        row++;
+      }
+      rowStarts[keptCount] = entry;
+
+      layers[layerIndex] = new SparseLayer(rowStarts, columns, values, biases, layer.getActivatorFunction());
+      weightCount += nonZeroCount;
+      columnMapping = nextColumnMapping;
+    }
+
+    int[] requiredInputs = new int[requiredInputList.size()];
+    for (int i = 0; i < requiredInputs.length; i++)
+    {
+      requiredInputs[i] = requiredInputList.get(i);
+    }
+
+    return new PrunedNetwork(keptInputs.length, requiredInputs, layers, weightCount);
+  }
+
+  /**
+   *
+   * @return The indices, within the original network's inputs, of the features this network still reads.
+   */
+  public int[] getRequiredInputs()
+  {
+    return requiredInputs.clone();
+  }
+
+  /**
+   * Select the names of the features this network still reads.
+   *
+   * @param inputFeatureNames The original network's input feature names, in network order.
+   * @return The names of the required features, in the order runCompacted expects them.
+   * @throws PonderInvalidInputException Indicates a feature name list that doesn't match the original network.
+   */
+  public String[] getRequiredFeatureNames(List<String> inputFeatureNames) throws PonderInvalidInputException
+  {
+    if(inputFeatureNames.size() != originalInputCount)
+    {
+      throw new PonderInvalidInputException("Feature name count does not match the network's input count!");
+    }
+
+    String[] requiredNames = new String[requiredInputs.length];
+    for (int i = 0; i < requiredInputs.length; i++)
+    {
+      requiredNames[i] = inputFeatureNames.get(requiredInputs[i]);
+    }
+    return requiredNames;
+  }
+
+  /**
+   *
+   * @return The number of non-zero weights remaining across all layers.
+   */
+  public int getWeightCount()
+  {
+    return weightCount;
+  }
+
+  /**
+   * Run one full set of features, as accepted by the original network. Only the required features are read.
+   *
+   * @param inputs One set of features for the original network.
+   * @return The outputs from the run.
+   * @throws PonderInvalidInputException Indicates an incorrect input feature count.
+   */
+  public double[] run(double[] inputs) throws PonderInvalidInputException
+  {
+    if(inputs.length != originalInputCount)
+    {
+      throw new PonderInvalidInputException("Input count for run does not match neuron count for the first layer!");
+    }
+
+    double[] compactedInputs = new double[requiredInputs.length];
+    for (int i = 0; i < requiredInputs.length; i++)
+    {
+      compactedInputs[i] = inputs[requiredInputs[i]];
+    }
+    return runLayers(compactedInputs);
+  }
+
+  /**
+   * Run one set of only the required features, in the order given by getRequiredInputs.
+   *
+   * @param requiredInputValues The values of the required features.
+   * @return The outputs from the run.
+   * @throws PonderInvalidInputException Indicates an incorrect input feature count.
+   */
+  public double[] runCompacted(double[] requiredInputValues) throws PonderInvalidInputException
+  {
+    if(requiredInputValues.length != requiredInputs.length)
+    {
+      throw new PonderInvalidInputException("Input count for run does not match the required feature count!");
+    }
+    return runLayers(requiredInputValues);
+  }
+
+  private double[] runLayers(double[] inputs)
+  {
+    double[] layerOutputs = inputs;
+
+    for (SparseLayer layer : layers)
+    {
+      double[] results = new double[layer.biases.length];
+      for (int neuronIndex = 0; neuronIndex < results.length; neuronIndex++)
+      {
+        double result = layer.biases[neuronIndex];
+        for (int entry = layer.rowStarts[neuronIndex]; entry < layer.rowStarts[neuronIndex + 1]; entry++)
+        {
+          result += layer.values[entry] * layerOutputs[layer.columns[entry]];
+        }
+        results[neuronIndex] = layer.activatorFunction.activate(result);
+      }
+      if(layer.activatorFunction.isLayerNormalizing())
+      {
+        layer.activatorFunction.normalizeLayer(results);
+      }
+      layerOutputs = results;
+    }
+
+    return layerOutputs;
+  }
+}
@@ -0,0 +1,200 @@
+package ponder.network;
+
+import ponder.err.PonderInvalidInputException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * An immutable copy of a network for inference, where each layer runs the loop strategy, tile size and thread count
+ * that KernelAutotuner chose for its shape. Like NetworkSnapshot it keeps no per-run state, so any number of threads
+ * may call it at once, and later training of the source network does not affect it.
+ */
+public class TunedNetwork
+{
+  private final PackedLayer[] layers;
+  private final LayerPlan[] plans;
+  private final ExecutorService executor;
+
+  TunedNetwork(List<Layer> sourceLayers, LayerPlan[] plans, ExecutorService executor)
+  {
+    this.layers = new PackedLayer[sourceLayers.size()];
+    this.plans = plans.clone();
+    this.executor = executor;
+
+    for (int layerIndex = 0; layerIndex < layers.length; layerIndex++)
+    {
+      boolean column = plans[layerIndex].getStrategy() == LayerPlan.Strategy.COLUMN;
+      layers[layerIndex] = new PackedLayer(sourceLayers.get(layerIndex), !column, column);
+    }
+  }
+
+  public int getLayerCount()
+  {
+    return layers.length;
+  }
+
+  public int getInputCount()
+  {
+    return layers[0].numInputs;
+  }
+
+  public int getOutputCount()
+  {
+    return layers[layers.length - 1].numNeurons;
+  }
+
+  /**
+   *
+   * @param layerIndex The layer, counting from the first.
+   * @return The plan the layer runs with.
+   */
+  public LayerPlan getPlan(int layerIndex)
+  {
+    return plans[layerIndex];
+  }
+
+  /**
+   * Run one set of inputs through the network.
+   *
+   * @param inputs The inputs, which must be equal in number to the inputs of the first layer.
+   * @return The outputs from the run.
+   * @throws PonderInvalidInputException Indicates an invalid input count.
+   * @throws InterruptedException Indicates the run was interrupted while waiting for a parallel layer.
+   */
+  public double[] run(double[] inputs) throws PonderInvalidInputException, InterruptedException
+  {
+    return runBatch(new double[][]{inputs})[0];
+  }
+
+  /**
+   * Run a batch of inputs through the network, one layer at a time for the whole batch.
+   *
+   * @param inputs One set of inputs per example, each equal in number to the inputs of the first layer.
+   * @return The outputs for each example.
+   * @throws PonderInvalidInputException Indicates an invalid input count.
+   * @throws InterruptedException Indicates the run was interrupted while waiting for a parallel layer.
+   */
+  public double[][] runBatch(double[][] inputs) throws PonderInvalidInputException, InterruptedException
+  {
+    for (double[] exampleInputs : inputs)
+    {
+      if(exampleInputs.length != getInputCount())
+      {
+        throw new PonderInvalidInputException("Input count for run does not match neuron count for the first layer!");
+      }
+    }
+
+    double[][] layerOutputs = inputs;
+    for (int layerIndex = 0; layerIndex < layers.length; layerIndex++)
+    {
+      layerOutputs = fireLayer(layers[layerIndex], plans[layerIndex], layerOutputs, executor);
+    }
+    return layerOutputs;
+  }
+
+  /**
+   * Fire one packed layer for a whole batch according to a plan. With more than one thread, the batch is split into
+   * contiguous ranges of examples, or, when there are fewer examples than threads, the layer's neurons are split
+   * instead. The calling thread takes one of the ranges.
+   */
+  static double[][] fireLayer(PackedLayer layer, LayerPlan plan, double[][] inputs, ExecutorService executor)
+      throws PonderInvalidInputException, InterruptedException
+  {
+    final int batchSize = inputs.length;
+    // Allocating the rows one at a time is faster than a two-dimensional array creation, which the JIT compiler leaves
+    // to a slow runtime call.
+    final double[][] outputs = new double[batchSize][];
+    for (int exampleIndex = 0; exampleIndex < batchSize; exampleIndex++)
+    {
+      outputs[exampleIndex] = new double[layer.numNeurons];
+    }
+
+    final boolean splitExamples = batchSize >= plan.getThreadCount();
+    final int extent = splitExamples ? batchSize : layer.numNeurons;
+    final int threadCount = executor == null ? 1 : Math.min(plan.getThreadCount(), extent);
+
+    if(threadCount <= 1)
+    {
+      layer.fire(plan, inputs, outputs, 0, batchSize, 0, layer.numNeurons);
+    }
+    else
+    {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int thread = 1; thread < threadCount; thread++)
+      {
+        final int from = (int) ((long) extent * thread / threadCount);
+        final int to = (int) ((long) extent * (thread + 1) / threadCount);
+        futures.add(executor.submit(() ->
+        {
+          if(splitExamples)
+          {
+            layer.fire(plan, inputs, outputs, from, to, 0, layer.numNeurons);
+          }
+          else
+          {
+            layer.fire(plan, inputs, outputs, 0, batchSize, from, to);
+          }
+        }));
+      }
+
+      // If this thread's range fails, a worker fails or the wait is interrupted, cancel whatever has not finished, so
+      // that an abandoned batch does not keep the executor busy.
+      boolean completed = false;
+      try
+      {
+        final int firstEnd = extent / threadCount;
+        if(splitExamples)
+        {
+          layer.fire(plan, inputs, outputs, 0, firstEnd, 0, layer.numNeurons);
+        }
+        else
+        {
+          layer.fire(plan, inputs, outputs, 0, batchSize, 0, firstEnd);
+        }
+
+        for (Future<?> future : futures)
+        {
+          future.get();
+        }
+        completed = true;
+      }
+      catch (ExecutionException e)
+      {
+        // The kernel throws no checked exceptions, so a failure is a bug or an Error; rethrow it as it was.
+        Throwable cause = e.getCause();
+        if(cause instanceof RuntimeException)
+        {
+          throw (RuntimeException) cause;
+        }
+        if(cause instanceof Error)
+        {
+          throw (Error) cause;
+        }
+        throw new IllegalStateException("Layer kernel failed!", cause);
+      }
+      finally
+      {
+        if(!completed)
+        {
+          for (Future<?> future : futures)
+          {
+            future.cancel(true);
+          }
+        }
+      }
+    }
+
+    if(layer.activatorFunction.isLayerNormalizing())
+    {
+      for (double[] exampleOutputs : outputs)
+      {
+        layer.activatorFunction.normalizeLayer(exampleOutputs);
+      }
+    }
+    return outputs;
+  }
+}
@@ -0,0 +1,13 @@
+package ponder.schedule;
+
+/**
+ * Uses the base learning rate for every step. This is the default.
+ */
+public class ConstantSchedule implements LearningRateSchedule
+{
+  @Override
+  public double getLearningRate(double baseLearningRate, long step)
+  {
+    return baseLearningRate;
+  }
+}
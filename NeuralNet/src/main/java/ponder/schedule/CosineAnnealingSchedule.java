@@ -0,0 +1,40 @@
+package ponder.schedule;
+
+import ponder.err.PonderInvalidInputException;
+
+/**
+ * Follows half a cosine wave from the base learning rate down to a minimum over a fixed number of steps, and stays at
+ * the minimum afterwards. The rate falls slowly at first, quickly in the middle, and slowly again at the end.
+ */
+public class CosineAnnealingSchedule implements LearningRateSchedule
+{
+  private final long totalSteps;
+  private final double minLearningRate;
+
+  /**
+   *
+   * @param totalSteps The number of steps to reach the minimum learning rate.
+   * @param minLearningRate The learning rate at the end of the schedule.
+   * @throws PonderInvalidInputException Indicates a step count less than 1 or a negative minimum.
+   */
+  public CosineAnnealingSchedule(long totalSteps, double minLearningRate) throws PonderInvalidInputException
+  {
+    if(totalSteps < 1)
+    {
+      throw new PonderInvalidInputException("Cosine annealing step count must be at least 1!");
+    }
+    if(minLearningRate < 0d)
+    {
+      throw new PonderInvalidInputException("Cosine annealing minimum learning rate is negative!");
+    }
+    this.totalSteps = totalSteps;
+    this.minLearningRate = minLearningRate;
+  }
+
+  @Override
+  public double getLearningRate(double baseLearningRate, long step)
+  {
+    double progress = (double) Math.min(step, totalSteps) / totalSteps;
+    return minLearningRate + 0.5d * (baseLearningRate - minLearningRate) * (1.0d + Math.cos(Math.PI * progress));
+  }
+}
@@ -0,0 +1,38 @@
+package ponder.schedule;
+
+import ponder.err.PonderInvalidInputException;
+
+/**
+ * Decays the learning rate smoothly, so that it has been multiplied by decayRate after every decaySteps steps.
+ */
+public class ExponentialDecaySchedule implements LearningRateSchedule
+{
+  private final double decayRate;
+  private final long decaySteps;
+
+  /**
+   *
+   * @param decayRate The factor the learning rate is multiplied by over decaySteps steps.
+   * @param decaySteps The number of steps over which the learning rate decays by decayRate.
+   * @throws PonderInvalidInputException Indicates a decay rate outside (0, 1] or a step count less than 1.
+   */
+  public ExponentialDecaySchedule(double decayRate, long decaySteps) throws PonderInvalidInputException
+  {
+    if(decayRate <= 0d || decayRate > 1d)
+    {
+      throw new PonderInvalidInputException("Exponential decay rate must be in (0, 1]!");
+    }
+    if(decaySteps < 1)
+    {
+      throw new PonderInvalidInputException("Exponential decay step count must be at least 1!");
+    }
+    this.decayRate = decayRate;
+    this.decaySteps = decaySteps;
+  }
+
+  @Override
+  public double getLearningRate(double baseLearningRate, long step)
+  {
+    return baseLearningRate * Math.pow(decayRate, (double) step / decaySteps);
+  }
+}
@@ -0,0 +1,16 @@
+package ponder.schedule;
+
+/**
+ * Varies the learning rate over the course of training. Larger steps early on cover ground quickly, and smaller steps
+ * later let the weights settle instead of bouncing around a minimum.
+ */
+public interface LearningRateSchedule
+{
+  /**
+   *
+   * @param baseLearningRate The trainer's configured learning rate.
+   * @param step The number of training steps taken so far, starting at 0.
+   * @return The learning rate for this step.
+   */
+  double getLearningRate(double baseLearningRate, long step);
+}
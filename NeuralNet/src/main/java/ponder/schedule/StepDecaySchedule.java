@@ -0,0 +1,38 @@
+package ponder.schedule;
+
+import ponder.err.PonderInvalidInputException;
+
+/**
+ * Multiplies the learning rate by a fixed factor after every stepSize steps.
+ */
+public class StepDecaySchedule implements LearningRateSchedule
+{
+  private final long stepSize;
+  private final double factor;
+
+  /**
+   *
+   * @param stepSize The number of steps between decays.
+   * @param factor The factor applied at each decay, e.g. 0.5 to halve the learning rate.
+   * @throws PonderInvalidInputException Indicates a step size less than 1 or a factor outside (0, 1].
+   */
+  public StepDecaySchedule(long stepSize, double factor) throws PonderInvalidInputException
+  {
+    if(stepSize < 1)
+    {
+      throw new PonderInvalidInputException("Step decay step size must be at least 1!");
+    }
+    if(factor <= 0d || factor > 1d)
+    {
+      throw new PonderInvalidInputException("Step decay factor must be in (0, 1]!");
+    }
+    this.stepSize = stepSize;
+    this.factor = factor;
+  }
+
+  @Override
+  public double getLearningRate(double baseLearningRate, long step)
+  {
+    return baseLearningRate * Math.pow(factor, step / stepSize);
+  }
+}
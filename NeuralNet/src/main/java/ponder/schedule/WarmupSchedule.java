@@ -0,0 +1,44 @@
+package ponder.schedule;
+
+import ponder.err.PonderInvalidInputException;
+
+/**
+ * Ramps the learning rate up linearly from near zero to the base rate over the first warmupSteps steps, and then hands
+ * over to another schedule, which sees steps counted from the end of the warmup. Small early steps keep badly scaled
+ * initial weights from being thrown into saturation before the errors are meaningful.
+ */
+public class WarmupSchedule implements LearningRateSchedule
+{
+  private final long warmupSteps;
+  private final LearningRateSchedule afterWarmup;
+
+  /**
+   *
+   * @param warmupSteps The number of steps to ramp up over.
+   * @param afterWarmup The schedule to follow once warmed up.
+   * @throws PonderInvalidInputException Indicates a step count less than 1 or a null schedule.
+   */
+  public WarmupSchedule(long warmupSteps, LearningRateSchedule afterWarmup) throws PonderInvalidInputException
+  {
+    if(warmupSteps < 1)
+    {
+      throw new PonderInvalidInputException("Warmup step count must be at least 1!");
+    }
+    if(afterWarmup == null)
+    {
+      throw new PonderInvalidInputException("Schedule after warmup is null!");
+    }
+    this.warmupSteps = warmupSteps;
+    this.afterWarmup = afterWarmup;
+  }
+
+  @Override
+  public double getLearningRate(double baseLearningRate, long step)
+  {
+    if(step < warmupSteps)
+    {
+      return baseLearningRate * (step + 1) / warmupSteps;
+    }
+    return afterWarmup.getLearningRate(baseLearningRate, step - warmupSteps);
+  }
+}
@@ -0,0 +1,80 @@
+package ponder.search;
+
+import java.util.List;
+
+/**
+ * The outcome of a hyperparameter search: the best configuration found, its validation MSE, and how much training
+ * the search performed compared to training every configuration for the full budget.
+ */
+public class SearchResult
+{
+  private final TrialConfiguration bestConfiguration;
+  private final double bestMse;
+  private final long epochsSpent;
+  private final long fullBudgetEpochs;
+  private final List<String> rungSummaries;
+
+  SearchResult(TrialConfiguration bestConfiguration, double bestMse, long epochsSpent, long fullBudgetEpochs,
+               List<String> rungSummaries)
+  {
+    this.bestConfiguration = bestConfiguration;
+    this.bestMse = bestMse;
+    this.epochsSpent = epochsSpent;
+    this.fullBudgetEpochs = fullBudgetEpochs;
+    this.rungSummaries = rungSummaries;
+  }
+
+  public TrialConfiguration getBestConfiguration()
+  {
+    return bestConfiguration;
+  }
+
+  public double getBestMse()
+  {
+    return bestMse;
+  }
+
+  /**
+   *
+   * @return The total number of training epochs run across all trials.
+   */
+  public long getEpochsSpent()
+  {
+    return epochsSpent;
+  }
+
+  /**
+   *
+   * @return The number of epochs it would have taken to train every configuration for the full budget.
+   */
+  public long getFullBudgetEpochs()
+  {
+    return fullBudgetEpochs;
+  }
+
+  /**
+   *
+   * @return The fraction of the full budget that the search did not need to spend.
+   */
+  public double getSavedFraction()
+  {
+    return fullBudgetEpochs == 0L ? 0d : 1.0d - (double) epochsSpent / (double) fullBudgetEpochs;
+  }
+
+  /**
+   *
+   * @return One line per rung describing its epoch budget, trial count and best MSE.
+   */
+  public List<String> getRungSummaries()
+  {
+    return rungSummaries;
+  }
+
+  @Override
+  public String toString()
+  {
+    return "Best configuration: " + bestConfiguration + "\n" +
+        "Best MSE: " + bestMse + "\n" +
+        "Epochs spent: " + epochsSpent + " of " + fullBudgetEpochs + " (" + (100.0d * getSavedFraction()) + "% saved)";
+  }
+}
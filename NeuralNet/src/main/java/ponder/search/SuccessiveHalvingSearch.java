@@ -0,0 +1,211 @@
+package ponder.search;
+
+import ponder.data.InputSet;
+import ponder.err.PonderInvalidInputException;
+import ponder.network.NetworkTrainer;
+import ponder.network.NeuralNetwork;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Searches a list of configurations with successive halving.
+ *
+ * Every configuration starts as a trial trained for minEpochs and scored by MSE on a validation set. Only the best
+ * 1/reductionFactor of the trials survive each rung. The survivors keep their networks and continue training up to
+ * reductionFactor times the previous budget. This repeats until the budget reaches maxEpochs, so the winning trial is
+ * always trained for the full budget, exactly as it would have been without the search. Configurations that are
+ * clearly failing are dropped after a small fraction of the full budget, and that compute goes to the promising ones.
+ *
+ * The trials in a rung are independent, so they are trained concurrently on the supplied executor.
+ */
+public class SuccessiveHalvingSearch
+{
+  /**
+   * A configuration together with its partly trained network.
+   */
+  private static final class Trial
+  {
+    private final TrialConfiguration configuration;
+    private final NeuralNetwork neuralNetwork;
+    private final NetworkTrainer trainer;
+    private int epochsTrained = 0;
+    private double mse = Double.POSITIVE_INFINITY;
+
+    private Trial(TrialConfiguration configuration, NeuralNetwork neuralNetwork, NetworkTrainer trainer)
+    {
+      this.configuration = configuration;
+      this.neuralNetwork = neuralNetwork;
+      this.trainer = trainer;
+    }
+  }
+
+  private final InputSet trainingSet;
+  private final double[][] validationInputs;
+  private final double[] validationTargets;
+  private final List<String> inputFeatureNames;
+  private final String target;
+
+  private final int minEpochs;
+  private final int maxEpochs;
+  private final int reductionFactor;
+  private final ExecutorService executor;
+
+  /**
+   *
+   * @param trainingSet The data to train each trial on.
+   * @param validationSet The data to score each trial on.
+   * @param inputFeatureNames The input features, in network order.
+   * @param target The name of the target feature.
+   * @param minEpochs The epoch budget of the first rung.
+   * @param maxEpochs The largest epoch budget any trial is trained for.
+   * @param reductionFactor The factor by which the trial count shrinks, and the budget grows, at each rung.
+   * @param executor The executor on which trials are trained.
+   * @throws PonderInvalidInputException Indicates an invalid search configuration or missing feature.
+   */
+  public SuccessiveHalvingSearch(InputSet trainingSet, InputSet validationSet, List<String> inputFeatureNames,
+                                 String target, int minEpochs, int maxEpochs, int reductionFactor,
+                                 ExecutorService executor) throws PonderInvalidInputException
+  {
+    if(minEpochs <= 0 || maxEpochs < minEpochs)
+    {
+      throw new PonderInvalidInputException("Search epoch budgets must satisfy 0 < minEpochs <= maxEpochs!");
+    }
+    if(reductionFactor < 2)
+    {
+      throw new PonderInvalidInputException("Search reduction factor must be at least 2!");
+    }
+
+    this.trainingSet = trainingSet;
+    this.validationInputs = validationSet.getInputFeatures(inputFeatureNames.toArray(new String[0]));
+    double[][] targetColumn = validationSet.getInputFeatures(new String[]{target});
+    this.validationTargets = new double[targetColumn.length];
+    for (int rowIndex = 0; rowIndex < targetColumn.length; rowIndex++)
+    {
+      validationTargets[rowIndex] = targetColumn[rowIndex][0];
+    }
+
+    this.inputFeatureNames = inputFeatureNames;
+    this.target = target;
+    this.minEpochs = minEpochs;
+    this.maxEpochs = maxEpochs;
+    this.reductionFactor = reductionFactor;
+    this.executor = executor;
+  }
+
+  /**
+   * Run the search.
+   *
+   * @param configurations The candidate configurations.
+   * @return The best configuration and a summary of the compute spent.
+   * @throws PonderInvalidInputException Indicates an invalid configuration or a failure while training.
+   * @throws InterruptedException Indicates the search was interrupted while waiting for trials.
+   */
+  public SearchResult search(List<TrialConfiguration> configurations)
+      throws PonderInvalidInputException, InterruptedException
+  {
+    if(configurations.isEmpty())
+    {
+      throw new PonderInvalidInputException("Search requires at least one configuration!");
+    }
+
+    List<Trial> trials = new ArrayList<>();
+    for (TrialConfiguration configuration : configurations)
+    {
+      NeuralNetwork neuralNetwork = configuration.createNeuralNet(inputFeatureNames.size(), 1);
+      NetworkTrainer trainer = new NetworkTrainer(neuralNetwork, inputFeatureNames, target);
+      trainer.setTrainingData(trainingSet.getFeatureNames(), trainingSet.getInputs());
+      trainer.setLearningRate(configuration.getLearningRate());
+      trainer.setSeed(configuration.getSeed());
+      trials.add(new Trial(configuration, neuralNetwork, trainer));
+    }
+
+    long epochsSpent = 0L;
+    List<String> rungSummaries = new ArrayList<>();
+    int budget = minEpochs;
+
+    while (true)
+    {
+      epochsSpent += trainRung(trials, budget);
+      trials.sort(Comparator.comparingDouble(trial -> trial.mse));
+      rungSummaries.add("Rung budget " + budget + " epochs: " + trials.size() + " trials, best MSE " +
+          trials.get(0).mse);
+
+      // Stop only once the budget is exhausted. A lone survivor still trains on to maxEpochs, so the result is
+      // comparable to training every configuration for the full budget.
+      if(budget >= maxEpochs)
+      {
+        break;
+      }
+
+      // Keep the best 1/reductionFactor of the trials, and give them reductionFactor times the budget.
+      int survivorCount = Math.max(1, trials.size() / reductionFactor);
+      trials = new ArrayList<>(trials.subList(0, survivorCount));
+      budget = (int) Math.min((long) budget * reductionFactor, maxEpochs);
+    }
+
+    Trial best = trials.get(0);
+    long fullBudgetEpochs = (long) configurations.size() * maxEpochs;
+    return new SearchResult(best.configuration, best.mse, epochsSpent, fullBudgetEpochs, rungSummaries);
+  }
+
+  /**
+   * Train every trial up to the given budget and score it.
+   *
+   * @return The number of epochs trained across all trials during this rung.
+   */
+  private long trainRung(List<Trial> trials, int budget) throws PonderInvalidInputException, InterruptedException
+  {
+    List<Future<Integer>> futures = new ArrayList<>();
+    for (Trial trial : trials)
+    {
+      futures.add(executor.submit(() ->
+      {
+        int epochsToTrain = budget - trial.epochsTrained;
+        for (int epoch = 0; epoch < epochsToTrain; epoch++)
+        {
+          trial.trainer.runOnce();
+        }
+        trial.epochsTrained = budget;
+        trial.mse = evaluate(trial.neuralNetwork);
+        return epochsToTrain;
+      }));
+    }
+
+    long epochsTrained = 0L;
+    for (Future<Integer> future : futures)
+    {
+      try
+      {
+        epochsTrained += future.get();
+      }
+      catch (ExecutionException e)
+      {
+        if(e.getCause() instanceof PonderInvalidInputException)
+        {
+          throw (PonderInvalidInputException) e.getCause();
+        }
+        throw new PonderInvalidInputException("Search trial failed: " + e.getCause());
+      }
+    }
+    return epochsTrained;
+  }
+
+  private double evaluate(NeuralNetwork neuralNetwork) throws PonderInvalidInputException
+  {
+    double mse = 0d;
+    for (int rowIndex = 0; rowIndex < validationInputs.length; rowIndex++)
+    {
+      double error = validationTargets[rowIndex] - neuralNetwork.run(validationInputs[rowIndex])[0];
+      mse += error * error;
+    }
+    mse /= (double) validationInputs.length;
+
+    // A diverged network scores worse than any finite MSE rather than poisoning the sort.
+    return Double.isNaN(mse) ? Double.POSITIVE_INFINITY : mse;
+  }
+}
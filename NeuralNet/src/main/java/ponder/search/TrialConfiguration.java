@@ -0,0 +1,86 @@
+package ponder.search;
+
+import ponder.activation.Activation;
+import ponder.err.PonderInvalidInputException;
+import ponder.network.NeuralNetwork;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * One candidate set of hyperparameters for a search: the learning rate, the activation used on every layer, the width
+ * of each hidden layer, and the seed for both the initial weights and the training data selection.
+ */
+public class TrialConfiguration
+{
+  private final double learningRate;
+  private final Activation activatorFunction;
+  private final int[] hiddenLayerWidths;
+  private final long seed;
+
+  /**
+   *
+   * @param learningRate The learning rate for training.
+   * @param activatorFunction The activator function for every layer, including the output layer.
+   * @param hiddenLayerWidths The number of neurons on each hidden layer. The output layer is added automatically.
+   * @param seed The seed for the initial weights and training data selection.
+   */
+  public TrialConfiguration(double learningRate, Activation activatorFunction, int[] hiddenLayerWidths, long seed)
+  {
+    this.learningRate = learningRate;
+    this.activatorFunction = activatorFunction;
+    this.hiddenLayerWidths = Arrays.copyOf(hiddenLayerWidths, hiddenLayerWidths.length);
+    this.seed = seed;
+  }
+
+  /**
+   * Build a freshly initialized network for this configuration.
+   *
+   * @param numFeatures The number of input features.
+   * @param numOutputs The number of output neurons.
+   * @return The new network.
+   * @throws PonderInvalidInputException Indicates an invalid layer configuration.
+   */
+  public NeuralNetwork createNeuralNet(int numFeatures, int numOutputs) throws PonderInvalidInputException
+  {
+    final Random rng = new Random(seed);
+
+    NeuralNetwork neuralNetwork = new NeuralNetwork();
+    int numInputs = numFeatures;
+    for (int hiddenLayerWidth : hiddenLayerWidths)
+    {
+      neuralNetwork.addLayer(hiddenLayerWidth, numInputs, activatorFunction, rng);
+      numInputs = hiddenLayerWidth;
+    }
+    neuralNetwork.addLayer(numOutputs, numInputs, activatorFunction, rng);
+
+    return neuralNetwork;
+  }
+
+  public double getLearningRate()
+  {
+    return learningRate;
+  }
+
+  public Activation getActivatorFunction()
+  {
+    return activatorFunction;
+  }
+
+  public int[] getHiddenLayerWidths()
+  {
+    return Arrays.copyOf(hiddenLayerWidths, hiddenLayerWidths.length);
+  }
+
+  public long getSeed()
+  {
+    return seed;
+  }
+
+  @Override
+  public String toString()
+  {
+    return "learningRate=" + learningRate + ", activation=" + activatorFunction.getClass().getSimpleName() +
+        ", hiddenLayers=" + Arrays.toString(hiddenLayerWidths) + ", seed=" + seed;
+  }
+}